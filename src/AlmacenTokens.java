@@ -0,0 +1,310 @@
+import java.util.Arrays;
+
+/**
+ * Almacén comprimido de los tokens Java de un código, para conservar en
+ * memoria los tokens de muchos archivos sin un objeto Token por cada uno.
+ *
+ * Cada token se guarda como un byte de cabecera seguido de enteros de
+ * longitud variable (7 bits por byte): la cabecera tiene el tipo y el espacio
+ * desde el fin del token anterior, y después vienen el número de su lexema en
+ * un PoolSimbolos y, sólo si el token cambia de línea, la diferencia de
+ * líneas y su columna. Dentro de una línea la columna sale de la diferencia
+ * de posiciones y el fin, de la longitud del lexema en el pool. Los tokens se
+ * agrupan en bloques de TOKENS_POR_BLOQUE con el estado al empezar cada uno,
+ * de modo que un cursor puede empezar en cualquier token decodificando como
+ * mucho un bloque.
+ *
+ * El pool se puede compartir entre los almacenes de varios archivos, y
+ * entonces el mismo lexema tiene el mismo número en todos. Los lexemas se
+ * guardan como están escritos, con sus escapes Unicode, porque el fin de cada
+ * token sale de su longitud; un identificador escrito con y sin escapes
+ * ocupa dos números. Ni el almacén ni el pool son seguros entre hilos.
+ */
+public class AlmacenTokens {
+
+    public static final int TOKENS_POR_BLOQUE = 128;
+
+    private static final AnalizadorJava.TipoToken[] TIPOS = AnalizadorJava.TipoToken.values();
+
+    // Cabecera: tipo en los bits 0-3, posición explícita en el bit 4 y espacio
+    // en los bits 5-7, donde el valor más alto indica que el espacio va aparte
+    private static final int MASCARA_TIPO = 0x0F;
+    private static final int POSICION_EXPLICITA = 0x10;
+    private static final int BITS_ESPACIO = 5;
+    private static final int ESPACIO_APARTE = 7;
+
+    private final PoolSimbolos pool;
+
+    private byte[] datos = new byte[1024];
+    private int usados;
+    private int cantidad;
+
+    // Estado anterior al primer token de cada bloque
+    private int[] bytesBloque = new int[16];
+    private int[] finesBloque = new int[16];
+    private int[] iniciosBloque = new int[16];
+    private int[] lineasBloque = new int[16];
+    private int[] columnasBloque = new int[16];
+
+    // Último token agregado
+    private int finAnterior;
+    private int inicioAnterior;
+    private int lineaAnterior = 1;
+    private int columnaAnterior = 1;
+
+    /**
+     * @param pool Pool donde se internan los lexemas, que puede compartirse
+     *             con otros almacenes
+     */
+    public AlmacenTokens(PoolSimbolos pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Analiza un código Java y guarda sus tokens comprimidos
+     */
+    public static AlmacenTokens comprimir(CharSequence codigo, PoolSimbolos pool) {
+        AlmacenTokens almacen = new AlmacenTokens(pool);
+        AnalizadorJava.analizar(codigo, almacen.receptor());
+        almacen.compactar();
+        return almacen;
+    }
+
+    /**
+     * Receptor que agrega los tokens al almacén. Los tokens deben llegar en el
+     * orden del código, como los entrega el analizador.
+     */
+    public AnalizadorJava.ReceptorTokens receptor() {
+        return this::agregar;
+    }
+
+    private void agregar(AnalizadorJava.TipoToken tipo, CharSequence fuente, int inicio, int fin, int linea,
+            int columna) {
+        if (cantidad % TOKENS_POR_BLOQUE == 0) {
+            iniciarBloque();
+        }
+        // Reserva para el peor caso: cabecera y cuatro enteros de 5 bytes
+        if (usados + 21 > datos.length) {
+            datos = Arrays.copyOf(datos, datos.length + (datos.length >> 1) + 21);
+        }
+
+        int espacio = inicio - finAnterior;
+        boolean explicita = linea != lineaAnterior || columna != columnaAnterior + inicio - inicioAnterior;
+
+        datos[usados++] = (byte) (tipo.ordinal() | (explicita ? POSICION_EXPLICITA : 0)
+                | (Math.min(espacio, ESPACIO_APARTE) << BITS_ESPACIO));
+        if (espacio >= ESPACIO_APARTE) {
+            escribir(espacio);
+        }
+        if (explicita) {
+            escribir(linea - lineaAnterior);
+            escribir(columna);
+        }
+        escribir(pool.internar(fuente, inicio, fin));
+
+        finAnterior = fin;
+        inicioAnterior = inicio;
+        lineaAnterior = linea;
+        columnaAnterior = columna;
+        cantidad++;
+    }
+
+    private void iniciarBloque() {
+        int bloque = cantidad / TOKENS_POR_BLOQUE;
+        if (bloque == bytesBloque.length) {
+            int capacidad = bloque * 2;
+            bytesBloque = Arrays.copyOf(bytesBloque, capacidad);
+            finesBloque = Arrays.copyOf(finesBloque, capacidad);
+            iniciosBloque = Arrays.copyOf(iniciosBloque, capacidad);
+            lineasBloque = Arrays.copyOf(lineasBloque, capacidad);
+            columnasBloque = Arrays.copyOf(columnasBloque, capacidad);
+        }
+        bytesBloque[bloque] = usados;
+        finesBloque[bloque] = finAnterior;
+        iniciosBloque[bloque] = inicioAnterior;
+        lineasBloque[bloque] = lineaAnterior;
+        columnasBloque[bloque] = columnaAnterior;
+    }
+
+    /**
+     * Escribe un entero no negativo en 7 bits por byte, con el bit alto
+     * indicando que sigue otro byte
+     */
+    private void escribir(int valor) {
+        while ((valor & ~0x7F) != 0) {
+            datos[usados++] = (byte) ((valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        datos[usados++] = (byte) valor;
+    }
+
+    /**
+     * Ajusta los arreglos al tamaño usado. Se llama al terminar de agregar.
+     */
+    public void compactar() {
+        datos = Arrays.copyOf(datos, usados);
+        int bloques = (cantidad + TOKENS_POR_BLOQUE - 1) / TOKENS_POR_BLOQUE;
+        bytesBloque = Arrays.copyOf(bytesBloque, bloques);
+        finesBloque = Arrays.copyOf(finesBloque, bloques);
+        iniciosBloque = Arrays.copyOf(iniciosBloque, bloques);
+        lineasBloque = Arrays.copyOf(lineasBloque, bloques);
+        columnasBloque = Arrays.copyOf(columnasBloque, bloques);
+    }
+
+    public int getCantidad() {
+        return cantidad;
+    }
+
+    public PoolSimbolos getPool() {
+        return pool;
+    }
+
+    /**
+     * Bytes que ocupan los tokens y el índice de bloques, sin contar el pool
+     */
+    public long getBytes() {
+        return usados + 20L * ((cantidad + TOKENS_POR_BLOQUE - 1) / TOKENS_POR_BLOQUE);
+    }
+
+    /**
+     * Cursor al principio del almacén
+     */
+    public Cursor cursor() {
+        return cursor(0);
+    }
+
+    /**
+     * Cursor cuyo próximo token es el indicado. Sólo decodifica los tokens
+     * anteriores de su mismo bloque.
+     */
+    public Cursor cursor(int token) {
+        if (token < 0 || token > cantidad) {
+            throw new IndexOutOfBoundsException("Token: " + token + ", cantidad: " + cantidad);
+        }
+        Cursor cursor = new Cursor();
+        cursor.mover(token);
+        return cursor;
+    }
+
+    /**
+     * Recorrido de los tokens en orden, decodificando uno por vez sin crear
+     * objetos
+     */
+    public final class Cursor {
+        private int posicion;
+        private int indice = -1;
+        private int siguiente;
+
+        private AnalizadorJava.TipoToken tipo;
+        private int simbolo;
+        private int inicio;
+        private int fin;
+        private int linea;
+        private int columna;
+
+        private Cursor() {
+        }
+
+        private void mover(int token) {
+            if (cantidad == 0) {
+                return;
+            }
+            int bloque = Math.min(token, cantidad - 1) / TOKENS_POR_BLOQUE;
+            posicion = bytesBloque[bloque];
+            fin = finesBloque[bloque];
+            inicio = iniciosBloque[bloque];
+            linea = lineasBloque[bloque];
+            columna = columnasBloque[bloque];
+            siguiente = bloque * TOKENS_POR_BLOQUE;
+            while (siguiente < token) {
+                siguiente();
+            }
+        }
+
+        /**
+         * Avanza al próximo token
+         *
+         * @return false si no hay más tokens
+         */
+        public boolean siguiente() {
+            if (siguiente >= cantidad) {
+                return false;
+            }
+
+            int cabecera = datos[posicion++] & 0xFF;
+            int espacio = cabecera >>> BITS_ESPACIO;
+            if (espacio == ESPACIO_APARTE) {
+                espacio = leer();
+            }
+
+            int anterior = inicio;
+            inicio = fin + espacio;
+            if ((cabecera & POSICION_EXPLICITA) != 0) {
+                linea += leer();
+                columna = leer();
+            } else {
+                columna += inicio - anterior;
+            }
+            simbolo = leer();
+            fin = inicio + pool.longitud(simbolo);
+            tipo = TIPOS[cabecera & MASCARA_TIPO];
+            indice = siguiente++;
+            return true;
+        }
+
+        private int leer() {
+            int valor = 0;
+            for (int desplazamiento = 0;; desplazamiento += 7) {
+                byte b = datos[posicion++];
+                valor |= (b & 0x7F) << desplazamiento;
+                if (b >= 0) {
+                    return valor;
+                }
+            }
+        }
+
+        /**
+         * Número del token actual dentro del almacén
+         */
+        public int indice() {
+            return indice;
+        }
+
+        public AnalizadorJava.TipoToken tipo() {
+            return tipo;
+        }
+
+        /**
+         * Número del lexema en el pool del almacén
+         */
+        public int simbolo() {
+            return simbolo;
+        }
+
+        public int inicio() {
+            return inicio;
+        }
+
+        public int fin() {
+            return fin;
+        }
+
+        public int linea() {
+            return linea;
+        }
+
+        public int columna() {
+            return columna;
+        }
+
+        /**
+         * Lexema del token, con el mismo texto que AnalizadorJava.lexema. El
+         * String lo comparten todos los tokens con el mismo símbolo, salvo los
+         * nombres escritos con escapes Unicode, que se traducen cada vez.
+         */
+        public String lexema() {
+            String nombre = pool.nombre(simbolo);
+            return AnalizadorJava.lexema(tipo, nombre, 0, nombre.length());
+        }
+    }
+}
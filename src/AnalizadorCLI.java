@@ -0,0 +1,361 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Interfaz de línea de comandos para las herramientas del analizador
+ */
+public class AnalizadorCLI {
+
+    /**
+     * Muestra los comandos disponibles
+     */
+    private static void mostrarUso() {
+        System.out.println("Uso:");
+        System.out.println("  indexar <directorio> <indice>   Crea o actualiza el índice de identificadores");
+        System.out.println("  buscar <indice> <identificador> Busca las apariciones exactas de un identificador");
+        System.out.println("  prefijo <indice> <prefijo>      Busca los identificadores que empiezan con el prefijo");
+        System.out.println("  vigilar <directorio> [indice]   Vuelve a analizar los archivos que cambian");
+        System.out.println("  simular <archivo>...            Valida programas de robot con el simulador");
+        System.out.println("  optimizar <archivo>             Elimina los comandos de robot sin efecto");
+        System.out.println("  exportar <java|robot> <archivo> <destino>");
+        System.out.println("                                  Exporta los tokens a CSV o JSON Lines (.jsonl)");
+        System.out.println("  esquema <archivo>               Muestra las clases y métodos de un archivo Java");
+        System.out.println("  comprimir <directorio>          Mide los tokens Java del directorio en un AlmacenTokens");
+        System.out.println("  diferencia <java|robot> <anterior> <nuevo>");
+        System.out.println("                                  Muestra los tokens que cambiaron entre dos versiones");
+        System.out.println("  clones <directorio> [tokens]    Busca código Java copiado; encuentra toda copia de al menos");
+        System.out.println("                                  esa cantidad de tokens (" + (DetectorClones.TOKENS_MINIMOS
+                + DetectorClones.VENTANA - 1) + " por omisión)");
+    }
+
+    /**
+     * Indexar un directorio, reutilizando el índice existente si lo hay
+     */
+    private static void indexar(Path directorio, Path archivoIndice) throws IOException {
+        IndiceInvertido indice = Files.exists(archivoIndice) ? IndiceInvertido.cargar(archivoIndice)
+                : new IndiceInvertido();
+
+        long inicio = System.currentTimeMillis();
+        int analizados = indice.indexarDirectorio(directorio);
+        indice.guardar(archivoIndice);
+
+        System.out.println(String.format("%d archivos analizados de %d indexados en %d ms",
+                analizados, indice.getArchivos(), System.currentTimeMillis() - inicio));
+    }
+
+    /**
+     * Buscar en un índice guardado
+     */
+    private static void buscar(Path archivoIndice, String texto, boolean porPrefijo) throws IOException {
+        IndiceInvertido indice = IndiceInvertido.cargar(archivoIndice);
+
+        if (porPrefijo) {
+            List<Object[]> filas = indice.buscarPrefijo(texto);
+            for (Object[] fila : filas) {
+                System.out.println(String.format("%-20s %s:%d:%d", fila[0], fila[1], fila[2], fila[3]));
+            }
+            System.out.println(filas.size() + " apariciones");
+        } else {
+            List<Object[]> filas = indice.buscar(texto);
+            for (Object[] fila : filas) {
+                System.out.println(String.format("%s:%d:%d", fila[0], fila[1], fila[2]));
+            }
+            System.out.println(filas.size() + " apariciones");
+        }
+    }
+
+    /**
+     * Vigilar un directorio mostrando un resumen después de cada ráfaga de
+     * cambios. Si se indica un índice, se mantiene actualizado en disco.
+     */
+    private static void vigilar(Path directorio, final Path archivoIndice)
+            throws IOException, InterruptedException {
+        final IndiceInvertido indice = archivoIndice == null ? null
+                : Files.exists(archivoIndice) ? IndiceInvertido.cargar(archivoIndice) : new IndiceInvertido();
+
+        try (final ModoVigilancia vigilancia = new ModoVigilancia(directorio, 300)) {
+            vigilancia.setIndice(indice);
+            vigilancia.setOyente(cambiados -> {
+                EstadisticasTokens total = vigilancia.getTotal();
+                System.out.println(String.format(
+                        "%d archivos actualizados | %d archivos, %d tokens, %d identificadores distintos",
+                        cambiados.size(), vigilancia.getArchivos(), total.getTotalTokens(),
+                        total.getIdentificadoresDistintos()));
+                if (indice != null) {
+                    try {
+                        indice.guardar(archivoIndice);
+                    } catch (IOException e) {
+                        System.err.println("Error al guardar el índice: " + e.getMessage());
+                    }
+                }
+            });
+
+            System.out.println("Vigilando " + directorio + " (Ctrl+C para terminar)");
+            vigilancia.vigilar();
+        }
+    }
+
+    /**
+     * Simular programas de robot en paralelo y mostrar sus violaciones
+     *
+     * @return true si todos los programas son válidos
+     */
+    private static boolean simular(List<Path> archivos) throws IOException, InterruptedException {
+        List<String> programas = new ArrayList<>();
+        for (Path archivo : archivos) {
+            programas.add(new String(Files.readAllBytes(archivo), StandardCharsets.UTF_8));
+        }
+
+        SimuladorRobot.Resultado[] resultados = SimuladorRobot.simularEnParalelo(programas,
+                Runtime.getRuntime().availableProcessors());
+
+        int validos = 0;
+        for (int i = 0; i < resultados.length; i++) {
+            if (resultados[i].esValido()) {
+                validos++;
+                continue;
+            }
+            System.out.println(archivos.get(i) + ":");
+            for (String violacion : resultados[i].getViolaciones()) {
+                System.out.println("  " + violacion);
+            }
+        }
+        System.out.println(String.format("%d de %d programas válidos", validos, resultados.length));
+        return validos == resultados.length;
+    }
+
+    /**
+     * Optimizar un programa de robot. El programa minimizado se escribe en la
+     * salida estándar y el resumen en la salida de errores.
+     */
+    private static void optimizar(Path archivo) throws IOException {
+        String codigo = new String(Files.readAllBytes(archivo), StandardCharsets.UTF_8);
+        OptimizadorRobot.Resultado resultado = OptimizadorRobot.optimizar(codigo);
+
+        System.out.println(resultado.getPrograma().comoTexto());
+        System.err.println(String.format("%d comandos eliminados, %d conservados",
+                resultado.getEliminados(), resultado.getPrograma().tamano()));
+    }
+
+    /**
+     * Exportar los tokens de un archivo. Los archivos grandes se analizan
+     * mapeados, así que la memoria usada no depende de su tamaño.
+     */
+    private static void exportar(String lenguaje, Path archivo, Path destino) throws IOException {
+        CharSequence codigo = TextoMapeado.leer(archivo);
+        ExportadorTokens.Formato formato = ExportadorTokens.Formato.deArchivo(destino);
+
+        long inicio = System.currentTimeMillis();
+        long tokens = lenguaje.equals("robot") ? ExportadorTokens.exportarRobot(codigo, destino, formato)
+                : ExportadorTokens.exportarJava(codigo, destino, formato);
+        System.err.println(String.format("%d tokens exportados a %s (%s) en %d ms", tokens, destino, formato,
+                System.currentTimeMillis() - inicio));
+    }
+
+    /**
+     * Mostrar el esquema de clases y métodos de un archivo Java, con la línea
+     * de cada declaración
+     */
+    private static void esquema(Path archivo) throws IOException {
+        IndiceEstructural indice = IndiceEstructural.indexar(TextoMapeado.leer(archivo));
+        for (Object[] fila : indice.esquema()) {
+            System.out.println(String.format("%6d  %-7s %s", fila[2], fila[1], fila[0]));
+        }
+    }
+
+    /**
+     * Comprimir los tokens de todos los archivos Java de un directorio con un
+     * pool compartido y mostrar cuánta memoria ocupan
+     */
+    private static void comprimir(Path directorio) throws IOException {
+        List<Path> archivos;
+        try (Stream<Path> recorrido = Files.walk(directorio)) {
+            archivos = recorrido.filter(p -> Files.isRegularFile(p) && p.toString().endsWith(".java"))
+                    .collect(Collectors.toList());
+        }
+
+        PoolSimbolos pool = new PoolSimbolos();
+        long tokens = 0;
+        long bytes = 0;
+        long inicio = System.currentTimeMillis();
+        for (Path archivo : archivos) {
+            AlmacenTokens almacen = AlmacenTokens.comprimir(TextoMapeado.leer(archivo), pool);
+            tokens += almacen.getCantidad();
+            bytes += almacen.getBytes();
+        }
+
+        System.out.println(String.format("%d archivos, %d tokens, %d bytes (%.2f bytes por token), "
+                + "%d lexemas distintos, %d ms", archivos.size(), tokens, bytes,
+                tokens == 0 ? 0.0 : (double) bytes / tokens, pool.tamano(), System.currentTimeMillis() - inicio));
+    }
+
+    /**
+     * Mostrar los cambios de tokens entre dos versiones de un archivo. Cada
+     * cambio se muestra con sus líneas en ambas versiones y el texto de los
+     * tokens eliminados (-) y agregados (+).
+     */
+    private static void diferencia(String lenguaje, Path anterior, Path nuevo) throws IOException {
+        CharSequence codigoAnterior = TextoMapeado.leer(anterior);
+        CharSequence codigoNuevo = TextoMapeado.leer(nuevo);
+
+        long inicio = System.currentTimeMillis();
+        DiferenciaTokens diferencia = lenguaje.equals("robot")
+                ? DiferenciaTokens.compararRobot(codigoAnterior, codigoNuevo)
+                : DiferenciaTokens.compararJava(codigoAnterior, codigoNuevo);
+        long duracion = System.currentTimeMillis() - inicio;
+
+        for (Object[] fila : diferencia.paraTabla()) {
+            System.out.println(String.format("@@ %s -> %s %s", fila[1], fila[2], fila[0]));
+            imprimirLineas("- ", (String) fila[3]);
+            imprimirLineas("+ ", (String) fila[4]);
+        }
+        System.err.println(String.format("%d cambios, %d de %d tokens sin cambios, %d ms",
+                diferencia.getCambios(), diferencia.getIguales(), diferencia.getTokensNuevos(), duracion));
+    }
+
+    private static void imprimirLineas(String prefijo, String texto) {
+        if (!texto.isEmpty()) {
+            for (String linea : texto.split("\n", -1)) {
+                System.out.println(prefijo + linea);
+            }
+        }
+    }
+
+    /**
+     * Buscar código copiado entre los archivos Java de un directorio. El
+     * detector encuentra con seguridad los fragmentos de huella + ventana - 1
+     * tokens, así que la huella se calcula a partir del largo pedido, y
+     * descarta las copias medidas que son más cortas.
+     *
+     * @param tokens Largo, en tokens normalizados, desde el cual se encuentran
+     *               todas las copias
+     */
+    private static void clones(Path directorio, int tokens) throws IOException, InterruptedException {
+        if (tokens <= 0) {
+            throw new IllegalArgumentException("la cantidad de tokens debe ser positiva: " + tokens);
+        }
+        int ventana = Math.min(DetectorClones.VENTANA, Math.max(1, tokens / 2));
+        int tokensMinimos = tokens - ventana + 1;
+
+        List<Path> archivos;
+        try (Stream<Path> recorrido = Files.walk(directorio)) {
+            archivos = recorrido.filter(p -> Files.isRegularFile(p) && p.toString().endsWith(".java"))
+                    .sorted().collect(Collectors.toList());
+        }
+
+        long inicio = System.currentTimeMillis();
+        DetectorClones detector = DetectorClones.detectarEnParalelo(archivos, tokensMinimos, ventana, tokens,
+                Runtime.getRuntime().availableProcessors());
+
+        for (Object[] fila : detector.paraTabla()) {
+            System.out.println(String.format("%s:%s  %s:%s  (%d tokens)", fila[0], fila[1], fila[2], fila[3], fila[4]));
+        }
+        System.err.println(String.format("%d clones en %d archivos, %d tokens, %d huellas, %d ms",
+                detector.getClones(), archivos.size(), detector.getTokens(), detector.getHuellas(),
+                System.currentTimeMillis() - inicio));
+    }
+
+    /**
+     * Método principal de la línea de comandos
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            mostrarUso();
+            return;
+        }
+
+        try {
+            switch (args[0]) {
+                case "indexar":
+                    if (args.length != 3) {
+                        break;
+                    }
+                    indexar(Paths.get(args[1]), Paths.get(args[2]));
+                    return;
+                case "buscar":
+                case "prefijo":
+                    if (args.length != 3) {
+                        break;
+                    }
+                    buscar(Paths.get(args[1]), args[2], args[0].equals("prefijo"));
+                    return;
+                case "vigilar":
+                    if (args.length != 2 && args.length != 3) {
+                        break;
+                    }
+                    vigilar(Paths.get(args[1]), args.length == 3 ? Paths.get(args[2]) : null);
+                    return;
+                case "simular":
+                    if (args.length < 2) {
+                        break;
+                    }
+                    List<Path> archivos = new ArrayList<>();
+                    for (int i = 1; i < args.length; i++) {
+                        archivos.add(Paths.get(args[i]));
+                    }
+                    if (!simular(archivos)) {
+                        System.exit(1);
+                    }
+                    return;
+                case "optimizar":
+                    if (args.length != 2) {
+                        break;
+                    }
+                    optimizar(Paths.get(args[1]));
+                    return;
+                case "exportar":
+                    if (args.length != 4 || !(args[1].equals("java") || args[1].equals("robot"))) {
+                        break;
+                    }
+                    exportar(args[1], Paths.get(args[2]), Paths.get(args[3]));
+                    return;
+                case "esquema":
+                    if (args.length != 2) {
+                        break;
+                    }
+                    esquema(Paths.get(args[1]));
+                    return;
+                case "comprimir":
+                    if (args.length != 2) {
+                        break;
+                    }
+                    comprimir(Paths.get(args[1]));
+                    return;
+                case "diferencia":
+                    if (args.length != 4 || !(args[1].equals("java") || args[1].equals("robot"))) {
+                        break;
+                    }
+                    diferencia(args[1], Paths.get(args[2]), Paths.get(args[3]));
+                    return;
+                case "clones":
+                    if (args.length != 2 && args.length != 3) {
+                        break;
+                    }
+                    clones(Paths.get(args[1]), args.length == 3 ? Integer.parseInt(args[2])
+                            : DetectorClones.TOKENS_MINIMOS + DetectorClones.VENTANA - 1);
+                    return;
+                default:
+                    System.err.println("Comando desconocido: " + args[0]);
+                    break;
+            }
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Argumento inválido: " + e.getMessage());
+        }
+
+        mostrarUso();
+        System.exit(2);
+    }
+}
@@ -1,6 +1,7 @@
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -18,6 +19,20 @@ public class AnalizadorJava {
             "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void", "volatile", "while",
             "true", "false", "null"));
 
+    // Tabla de palabras clave para buscarlas por rango sin crear Strings
+    private static final int MASCARA_CLAVES = 127;
+    private static final String[] TABLA_CLAVES = new String[MASCARA_CLAVES + 1];
+
+    static {
+        for (String clave : PALABRAS_CLAVE_JAVA) {
+            int i = clave.hashCode() & MASCARA_CLAVES;
+            while (TABLA_CLAVES[i] != null) {
+                i = (i + 1) & MASCARA_CLAVES;
+            }
+            TABLA_CLAVES[i] = clave;
+        }
+    }
+
     /**
      * Enumeración de los tipos de tokens para Java
      */
@@ -43,6 +58,21 @@ public class AnalizadorJava {
         }
     }
 
+    /**
+     * Campos del Token que se pueden pedir al analizar con filtro. Los que no
+     * se piden quedan en null (el lexema) o en 0 (línea y columna).
+     */
+    public enum Campo {
+        LEXEMA,
+        LINEA,
+        COLUMNA
+    }
+
+    // Máscaras de tipos aceptados, un bit por TipoToken
+    private static final int TODOS = -1;
+    private static final int PALABRAS = (1 << TipoToken.PALABRA_CLAVE.ordinal())
+            | (1 << TipoToken.IDENTIFICADOR.ordinal());
+
     /**
      * Clase que representa un token de Java
      */
@@ -51,6 +81,7 @@ public class AnalizadorJava {
         private String lexema;
         private int linea;
         private int columna;
+        private int simbolo = -1;
 
         public Token(TipoToken tipo, String lexema, int linea, int columna) {
             this.tipo = tipo;
@@ -59,6 +90,11 @@ public class AnalizadorJava {
             this.columna = columna;
         }
 
+        public Token(TipoToken tipo, String lexema, int linea, int columna, int simbolo) {
+            this(tipo, lexema, linea, columna);
+            this.simbolo = simbolo;
+        }
+
         public TipoToken getTipo() {
             return tipo;
         }
@@ -75,6 +111,14 @@ public class AnalizadorJava {
             return columna;
         }
 
+        /**
+         * Número del identificador en el pool de símbolos usado en el análisis, o
+         * -1 si el token no es un identificador o no se usó un pool
+         */
+        public int getSimbolo() {
+            return simbolo;
+        }
+
         @Override
         public String toString() {
             return String.format("%-20s %-15s %-5d %-5d",
@@ -82,6 +126,140 @@ public class AnalizadorJava {
         }
     }
 
+    /**
+     * Receptor de tokens para el análisis en flujo. El analizador lo notifica en
+     * cuanto reconoce cada token, indicando su rango dentro del código fuente, de
+     * modo que el consumidor decide si necesita construir el lexema.
+     */
+    public interface ReceptorTokens {
+        /**
+         * @param tipo    Tipo del token reconocido
+         * @param codigo  Código fuente que se está analizando
+         * @param inicio  Posición del primer carácter del token
+         * @param fin     Posición siguiente al último carácter del token
+         * @param linea   Línea donde empieza el token
+         * @param columna Columna donde empieza el token
+         */
+        void token(TipoToken tipo, CharSequence codigo, int inicio, int fin, int linea, int columna);
+    }
+
+    // Estado de una instancia reutilizable: los tokens del último código
+    // analizado, en arreglos que se conservan entre llamadas
+    private CharSequence codigo = "";
+    private TipoToken[] tipos;
+    private int[] inicios;
+    private int[] fines;
+    private int[] lineas;
+    private int[] columnas;
+    private int cantidad;
+    private int filtro = TODOS;
+    private final ReceptorTokens registrador = this::registrar;
+
+    /**
+     * Crea un analizador reutilizable con capacidad inicial para 256 tokens
+     */
+    public AnalizadorJava() {
+        this(256);
+    }
+
+    /**
+     * Crea un analizador reutilizable. Una instancia no es segura para usarse
+     * desde varios hilos a la vez; se usa una por hilo o desde un pool.
+     *
+     * @param capacidad Cantidad de tokens que caben sin agrandar los buffers
+     */
+    public AnalizadorJava(int capacidad) {
+        capacidad = Math.max(1, capacidad);
+        tipos = new TipoToken[capacidad];
+        inicios = new int[capacidad];
+        fines = new int[capacidad];
+        lineas = new int[capacidad];
+        columnas = new int[capacidad];
+    }
+
+    /**
+     * Limita los tipos de token que guardan las siguientes llamadas a reset.
+     * Los demás se descartan dentro del analizador.
+     */
+    public void setFiltro(EnumSet<TipoToken> tipos) {
+        filtro = mascara(tipos);
+    }
+
+    /**
+     * Analiza un nuevo código guardando sus tokens en los buffers de la
+     * instancia. Los buffers sólo crecen cuando el código tiene más tokens que
+     * todos los anteriores, así que una instancia reutilizada no asigna memoria
+     * por llamada. Los resultados del código anterior se descartan.
+     *
+     * @param codigo Código fuente a analizar
+     * @return Cantidad de tokens encontrados
+     */
+    public int reset(CharSequence codigo) {
+        this.codigo = codigo;
+        cantidad = 0;
+        escanear(codigo, 0, codigo.length(), 1, 1, filtro, registrador);
+        return cantidad;
+    }
+
+    private void registrar(TipoToken tipo, CharSequence fuente, int inicio, int fin, int linea, int columna) {
+        if (cantidad == tipos.length) {
+            int capacidad = cantidad + (cantidad >> 1) + 1;
+            tipos = Arrays.copyOf(tipos, capacidad);
+            inicios = Arrays.copyOf(inicios, capacidad);
+            fines = Arrays.copyOf(fines, capacidad);
+            lineas = Arrays.copyOf(lineas, capacidad);
+            columnas = Arrays.copyOf(columnas, capacidad);
+        }
+
+        tipos[cantidad] = tipo;
+        inicios[cantidad] = inicio;
+        fines[cantidad] = fin;
+        lineas[cantidad] = linea;
+        columnas[cantidad] = columna;
+        cantidad++;
+    }
+
+    /**
+     * Cantidad de tokens del último código analizado
+     */
+    public int getCantidad() {
+        return cantidad;
+    }
+
+    /**
+     * Último código analizado
+     */
+    public CharSequence getCodigo() {
+        return codigo;
+    }
+
+    public TipoToken tipo(int token) {
+        return tipos[token];
+    }
+
+    public int inicio(int token) {
+        return inicios[token];
+    }
+
+    public int fin(int token) {
+        return fines[token];
+    }
+
+    public int linea(int token) {
+        return lineas[token];
+    }
+
+    public int columna(int token) {
+        return columnas[token];
+    }
+
+    /**
+     * Construye el lexema de un token; es la única operación que asigna memoria
+     */
+    public String lexema(int token) {
+        return lexema(tipos[token], codigo, inicios[token], fines[token]);
+    }
+
     /**
      * Analiza el código Java y devuelve una lista de tokens
      * 
@@ -89,18 +267,199 @@ public class AnalizadorJava {
      * @return Lista de tokens encontrados
      */
     public static List<Token> analizar(String codigo) {
-        List<Token> tokens = new ArrayList<>();
+        // Un token cada 4 caracteres es lo habitual en código Java; así la lista
+        // casi nunca se copia al crecer
+        final List<Token> tokens = new ArrayList<>(codigo.length() / 4 + 16);
+
+        analizar(codigo, (tipo, fuente, inicio, fin, linea, columna) -> tokens.add(
+                new Token(tipo, lexema(tipo, fuente, inicio, fin), linea, columna)));
+
+        return tokens;
+    }
 
-        // Agregar un espacio al final para facilitar el procesamiento
-        codigo = codigo + " ";
+    /**
+     * Analiza el código Java internando los identificadores en el pool. Cada
+     * token IDENTIFICADOR lleva su número de símbolo y comparte el String del
+     * pool, por lo que los identificadores repetidos no crean subcadenas.
+     * 
+     * @param codigo Código fuente a analizar
+     * @param pool   Pool donde se internan los identificadores
+     * @return Lista de tokens encontrados
+     */
+    public static List<Token> analizar(String codigo, final PoolSimbolos pool) {
+        return analizar(codigo, pool, null);
+    }
 
-        // Posición actual en el código
-        int posicion = 0;
-        int linea = 1;
-        int columna = 1;
+    /**
+     * Analiza el código Java internando los identificadores en el pool y
+     * notificando además cada token a otro receptor en la misma pasada, por
+     * ejemplo un IndiceEstructural
+     *
+     * @param codigo    Código fuente a analizar
+     * @param pool      Pool donde se internan los identificadores
+     * @param adicional Receptor que también recibe los tokens, o null
+     * @return Lista de tokens encontrados
+     */
+    public static List<Token> analizar(String codigo, final PoolSimbolos pool, final ReceptorTokens adicional) {
+        final List<Token> tokens = new ArrayList<>(codigo.length() / 4 + 16);
+
+        analizar(codigo, (tipo, fuente, inicio, fin, linea, columna) -> {
+            if (tipo == TipoToken.IDENTIFICADOR) {
+                int simbolo = internar(pool, fuente, inicio, fin);
+                tokens.add(new Token(tipo, pool.nombre(simbolo), linea, columna, simbolo));
+            } else {
+                tokens.add(new Token(tipo, lexema(tipo, fuente, inicio, fin), linea, columna));
+            }
+            if (adicional != null) {
+                adicional.token(tipo, fuente, inicio, fin, linea, columna);
+            }
+        });
+
+        return tokens;
+    }
+
+    /**
+     * Analiza el código Java notificando cada token al receptor sin construir
+     * objetos intermedios
+     * 
+     * @param codigo   Código fuente a analizar
+     * @param receptor Receptor que recibe los tokens en orden
+     */
+    public static void analizar(CharSequence codigo, ReceptorTokens receptor) {
+        escanear(codigo, 0, codigo.length(), 1, 1, TODOS, receptor);
+    }
+
+    /**
+     * Analiza una región del código Java partiendo de un estado conocido, por
+     * ejemplo un punto guardado por PuntosControl. La posición de partida debe
+     * ser el inicio de un token o un espacio fuera de comentarios y literales,
+     * con la línea y columna que le corresponden. Se notifican los tokens que
+     * empiezan antes del límite, aunque terminen después.
+     *
+     * @param codigo   Código fuente a analizar
+     * @param desde    Posición donde se retoma el análisis
+     * @param hasta    Posición donde ya no empiezan tokens
+     * @param linea    Línea de la posición de partida
+     * @param columna  Columna de la posición de partida
+     * @param receptor Receptor que recibe los tokens en orden
+     */
+    public static void analizar(CharSequence codigo, int desde, int hasta, int linea, int columna,
+            ReceptorTokens receptor) {
+        escanear(codigo, desde, Math.min(hasta, codigo.length()), linea, columna, TODOS, receptor);
+    }
+
+    /**
+     * Analiza el código Java devolviendo sólo los tokens de los tipos pedidos.
+     * Los demás se descartan dentro del analizador, antes de construir su
+     * lexema o su Token, y los campos que no se piden no se llenan.
+     *
+     * @param codigo Código fuente a analizar
+     * @param tipos  Tipos de token que se devuelven
+     * @param campos Campos que se llenan en cada Token
+     * @return Lista de tokens de los tipos pedidos
+     */
+    public static List<Token> analizar(String codigo, EnumSet<TipoToken> tipos, EnumSet<Campo> campos) {
+        final List<Token> tokens = new ArrayList<>();
+        final boolean conLexema = campos.contains(Campo.LEXEMA);
+        final boolean conLinea = campos.contains(Campo.LINEA);
+        final boolean conColumna = campos.contains(Campo.COLUMNA);
+
+        escanear(codigo, 0, codigo.length(), 1, 1, mascara(tipos), (tipo, fuente, inicio, fin, linea, columna) -> {
+            tokens.add(new Token(tipo, conLexema ? lexema(tipo, fuente, inicio, fin) : null,
+                    conLinea ? linea : 0, conColumna ? columna : 0));
+        });
+
+        return tokens;
+    }
+
+    /**
+     * Analiza el código Java notificando al receptor sólo los tokens de los
+     * tipos pedidos
+     *
+     * @param codigo   Código fuente a analizar
+     * @param tipos    Tipos de token que se notifican
+     * @param receptor Receptor que recibe los tokens en orden
+     */
+    public static void analizar(CharSequence codigo, EnumSet<TipoToken> tipos, ReceptorTokens receptor) {
+        escanear(codigo, 0, codigo.length(), 1, 1, mascara(tipos), receptor);
+    }
+
+    /**
+     * Convierte un conjunto de tipos en una máscara con un bit por tipo
+     */
+    private static int mascara(EnumSet<TipoToken> tipos) {
+        int mascara = 0;
+        for (TipoToken tipo : tipos) {
+            mascara |= 1 << tipo.ordinal();
+        }
+        return mascara;
+    }
+
+    private static boolean acepta(int filtro, TipoToken tipo) {
+        return (filtro & (1 << tipo.ordinal())) != 0;
+    }
+
+    /**
+     * Construye el lexema de un token notificado a un receptor. Un token
+     * DESCONOCIDO de más de un carácter que empieza con una barra, escrita tal
+     * cual o como escape, es un comentario multilinea sin cerrar, que se
+     * reporta con un mensaje en lugar del texto; los demás son caracteres
+     * escritos como escape Unicode. Los identificadores y las palabras clave
+     * llevan sus escapes traducidos, porque ése es el nombre que ve el
+     * compilador; los demás tokens quedan como están escritos.
+     */
+    public static String lexema(TipoToken tipo, CharSequence codigo, int inicio, int fin) {
+        if (tipo == TipoToken.DESCONOCIDO && fin - inicio > 1 && primerCaracter(codigo, inicio, fin) == '/') {
+            return COMENTARIO_SIN_CERRAR;
+        }
+        if ((tipo == TipoToken.IDENTIFICADOR || tipo == TipoToken.PALABRA_CLAVE)
+                && tieneBarra(codigo, inicio, fin)) {
+            return traducirEscapes(codigo, inicio, fin);
+        }
+        return codigo.subSequence(inicio, fin).toString();
+    }
+
+    /**
+     * Interna en el pool el nombre de un identificador o una palabra clave
+     * notificados a un receptor, con sus escapes Unicode traducidos, para que
+     * un mismo nombre tenga un solo símbolo sin importar cómo se escribió
+     *
+     * @return Número del símbolo
+     */
+    public static int internar(PoolSimbolos pool, CharSequence codigo, int inicio, int fin) {
+        if (tieneBarra(codigo, inicio, fin)) {
+            return pool.internar(traducirEscapes(codigo, inicio, fin));
+        }
+        return pool.internar(codigo, inicio, fin);
+    }
+
+    private static final String COMENTARIO_SIN_CERRAR = "Comentario multilinea sin cerrar";
+
+    /**
+     * Recorre el código desde la posición indicada hasta el límite, partiendo de
+     * la línea y columna dadas
+     */
+    private static void escanear(CharSequence codigo, int posicion, int limite, int linea, int columna,
+            int filtro, ReceptorTokens receptor) {
+        escanear(codigo, posicion, limite, linea, columna, filtro, receptor, true);
+    }
+
+    /**
+     * Recorre el código leyéndolo tal cual. Los escapes Unicode sólo se buscan
+     * al encontrar una barra invertida; el token que contiene uno y los que le
+     * siguen hasta pasar los escapes cercanos se analizan sobre una vista
+     * traducida del código, y luego se sigue leyendo el original.
+     *
+     * @param traducir Si se buscan escapes Unicode; es false cuando el código
+     *                 ya está traducido
+     * @return Posición donde terminó, al llegar al límite fuera de un token
+     */
+    private static int escanear(CharSequence codigo, int posicion, int limite, int linea, int columna,
+            int filtro, ReceptorTokens receptor, boolean traducir) {
+        int longitud = codigo.length();
 
         // Procesamos el código carácter por carácter
-        while (posicion < codigo.length()) {
+        escaneo: while (posicion < limite) {
             char c = codigo.charAt(posicion);
 
             // Salto de línea
@@ -119,23 +478,34 @@ public class AnalizadorJava {
             }
 
             // Comentarios de una línea
-            if (c == '/' && posicion + 1 < codigo.length() && codigo.charAt(posicion + 1) == '/') {
+            if (c == '/' && posicion + 1 < longitud && codigo.charAt(posicion + 1) == '/') {
                 int inicio = posicion;
                 posicion += 2;
                 columna += 2;
 
-                while (posicion < codigo.length() && codigo.charAt(posicion) != '\n') {
+                char actual;
+                while (posicion < longitud && (actual = codigo.charAt(posicion)) != '\n') {
+                    if (actual == '\\' && traducir && esEscapeUnicode(codigo, posicion, longitud)) {
+                        TextoTraducido texto = escanearTraducido(codigo, inicio, limite, linea,
+                                columna - (posicion - inicio), filtro, receptor);
+                        posicion = texto.posicion;
+                        linea = texto.linea;
+                        columna = texto.columna;
+                        continue escaneo;
+                    }
                     posicion++;
                     columna++;
                 }
 
-                tokens.add(new Token(TipoToken.COMENTARIO,
-                        codigo.substring(inicio, posicion), linea, columna - (posicion - inicio)));
+                if (acepta(filtro, TipoToken.COMENTARIO)) {
+                    receptor.token(TipoToken.COMENTARIO, codigo, inicio, posicion, linea,
+                            columna - (posicion - inicio));
+                }
                 continue;
             }
 
             // Comentarios multilinea
-            if (c == '/' && posicion + 1 < codigo.length() && codigo.charAt(posicion + 1) == '*') {
+            if (c == '/' && posicion + 1 < longitud && codigo.charAt(posicion + 1) == '*') {
                 int inicio = posicion;
                 posicion += 2;
                 columna += 2;
@@ -144,28 +514,89 @@ public class AnalizadorJava {
                 int lineaInicio = linea;
 
                 boolean encontrado = false;
-                while (posicion + 1 < codigo.length() && !encontrado) {
-                    if (codigo.charAt(posicion) == '*' && codigo.charAt(posicion + 1) == '/') {
+                while (posicion + 1 < longitud && !encontrado) {
+                    char actual = codigo.charAt(posicion);
+                    if (actual == '*' && codigo.charAt(posicion + 1) == '/') {
                         posicion += 2;
                         columna += 2;
                         encontrado = true;
                     } else {
-                        if (codigo.charAt(posicion) == '\n') {
+                        if (actual == '\n') {
                             linea++;
                             columna = 1;
+                        } else if (actual == '\\' && traducir && esEscapeUnicode(codigo, posicion, longitud)) {
+                            TextoTraducido texto = escanearTraducido(codigo, inicio, limite, lineaInicio,
+                                    coloniaInicio, filtro, receptor);
+                            posicion = texto.posicion;
+                            linea = texto.linea;
+                            columna = texto.columna;
+                            continue escaneo;
                         } else {
                             columna++;
                         }
                         posicion++;
                     }
                 }
+                // Sin cierre, el comentario llega hasta el final del código
+                if (!encontrado && posicion < longitud) {
+                    if (codigo.charAt(posicion) == '\n') {
+                        linea++;
+                        columna = 1;
+                    } else {
+                        columna++;
+                    }
+                    posicion++;
+                }
 
-                if (encontrado) {
-                    tokens.add(new Token(TipoToken.COMENTARIO,
-                            codigo.substring(inicio, posicion), lineaInicio, coloniaInicio));
-                } else {
-                    tokens.add(new Token(TipoToken.DESCONOCIDO,
-                            "Comentario multilinea sin cerrar", lineaInicio, coloniaInicio));
+                TipoToken tipo = encontrado ? TipoToken.COMENTARIO : TipoToken.DESCONOCIDO;
+                if (acepta(filtro, tipo)) {
+                    receptor.token(tipo, codigo, inicio, posicion, lineaInicio, coloniaInicio);
+                }
+                continue;
+            }
+
+            // Bloques de texto: tres comillas y el resto de la línea en blanco
+            if (c == '"' && esInicioBloqueTexto(codigo, posicion, longitud)) {
+                int inicio = posicion;
+                int lineaInicio = linea;
+                int columnaInicio = columna;
+                posicion += 3;
+                columna += 3;
+
+                boolean escapado = false;
+                int comillas = 0;
+                while (posicion < longitud && comillas < 3) {
+                    char actual = codigo.charAt(posicion);
+
+                    if (actual == '\\' && !escapado) {
+                        if (traducir && esEscapeUnicode(codigo, posicion, longitud)) {
+                            TextoTraducido texto = escanearTraducido(codigo, inicio, limite, lineaInicio,
+                                    columnaInicio, filtro, receptor);
+                            posicion = texto.posicion;
+                            linea = texto.linea;
+                            columna = texto.columna;
+                            continue escaneo;
+                        }
+                        escapado = true;
+                        comillas = 0;
+                    } else if (actual == '"' && !escapado) {
+                        comillas++;
+                    } else {
+                        escapado = false;
+                        comillas = 0;
+                    }
+
+                    if (actual == '\n') {
+                        linea++;
+                        columna = 1;
+                    } else {
+                        columna++;
+                    }
+                    posicion++;
+                }
+
+                if (acepta(filtro, TipoToken.LITERAL_STRING)) {
+                    receptor.token(TipoToken.LITERAL_STRING, codigo, inicio, posicion, lineaInicio, columnaInicio);
                 }
                 continue;
             }
@@ -179,10 +610,22 @@ public class AnalizadorJava {
                 boolean escapado = false;
                 boolean cerrado = false;
 
-                while (posicion < codigo.length() && !cerrado) {
+                // Un literal sin cerrar termina con la línea
+                while (posicion < longitud && !cerrado) {
                     char actual = codigo.charAt(posicion);
+                    if (actual == '\n') {
+                        break;
+                    }
 
                     if (actual == '\\' && !escapado) {
+                        if (traducir && esEscapeUnicode(codigo, posicion, longitud)) {
+                            TextoTraducido texto = escanearTraducido(codigo, inicio, limite, linea,
+                                    columna - (posicion - inicio), filtro, receptor);
+                            posicion = texto.posicion;
+                            linea = texto.linea;
+                            columna = texto.columna;
+                            continue escaneo;
+                        }
                         escapado = true;
                     } else if (actual == '"' && !escapado) {
                         cerrado = true;
@@ -194,8 +637,20 @@ public class AnalizadorJava {
                     columna++;
                 }
 
-                tokens.add(new Token(TipoToken.LITERAL_STRING,
-                        codigo.substring(inicio, posicion), linea, columna - (posicion - inicio)));
+                // Dos comillas pueden abrir un bloque de texto escrito con escapes
+                if (traducir && cerrado && posicion - inicio == 2
+                        && esEscapeUnicode(codigo, finEspacios(codigo, posicion, longitud), longitud)) {
+                    TextoTraducido texto = escanearTraducido(codigo, inicio, limite, linea, columna - 2,
+                            filtro, receptor);
+                    posicion = texto.posicion;
+                    linea = texto.linea;
+                    columna = texto.columna;
+                    continue escaneo;
+                }
+                if (acepta(filtro, TipoToken.LITERAL_STRING)) {
+                    receptor.token(TipoToken.LITERAL_STRING, codigo, inicio, posicion, linea,
+                            columna - (posicion - inicio));
+                }
                 continue;
             }
 
@@ -208,10 +663,21 @@ public class AnalizadorJava {
                 boolean escapado = false;
                 boolean cerrado = false;
 
-                while (posicion < codigo.length() && !cerrado) {
+                while (posicion < longitud && !cerrado) {
                     char actual = codigo.charAt(posicion);
+                    if (actual == '\n') {
+                        break;
+                    }
 
                     if (actual == '\\' && !escapado) {
+                        if (traducir && esEscapeUnicode(codigo, posicion, longitud)) {
+                            TextoTraducido texto = escanearTraducido(codigo, inicio, limite, linea,
+                                    columna - (posicion - inicio), filtro, receptor);
+                            posicion = texto.posicion;
+                            linea = texto.linea;
+                            columna = texto.columna;
+                            continue escaneo;
+                        }
                         escapado = true;
                     } else if (actual == '\'' && !escapado) {
                         cerrado = true;
@@ -223,96 +689,484 @@ public class AnalizadorJava {
                     columna++;
                 }
 
-                tokens.add(new Token(TipoToken.LITERAL_CHAR,
-                        codigo.substring(inicio, posicion), linea, columna - (posicion - inicio)));
+                if (acepta(filtro, TipoToken.LITERAL_CHAR)) {
+                    receptor.token(TipoToken.LITERAL_CHAR, codigo, inicio, posicion, linea,
+                            columna - (posicion - inicio));
+                }
                 continue;
             }
 
             // Números
-            if (Character.isDigit(c)
-                    || (c == '.' && posicion + 1 < codigo.length() && Character.isDigit(codigo.charAt(posicion + 1)))) {
+            if ((c >= '0' && c <= '9')
+                    || (c == '.' && posicion + 1 < longitud && esDigito(codigo.charAt(posicion + 1)))) {
                 int inicio = posicion;
-                boolean puntoDecimal = false;
+                posicion = finNumero(codigo, posicion, longitud);
+                columna += posicion - inicio;
 
-                if (c == '.') {
-                    puntoDecimal = true;
+                // Un escape pegado al final, o después de una e o una p que no
+                // llegaron a formar un exponente, puede continuar el literal
+                if (traducir && posicion < longitud && esFinEscapable(codigo.charAt(posicion))
+                        && hayEscape(codigo, posicion, posicion + 3, longitud)) {
+                    TextoTraducido texto = escanearTraducido(codigo, inicio, limite, linea,
+                            columna - (posicion - inicio), filtro, receptor);
+                    posicion = texto.posicion;
+                    linea = texto.linea;
+                    columna = texto.columna;
+                    continue escaneo;
                 }
+                if (acepta(filtro, TipoToken.LITERAL_NUM)) {
+                    receptor.token(TipoToken.LITERAL_NUM, codigo, inicio, posicion, linea,
+                            columna - (posicion - inicio));
+                }
+                continue;
+            }
 
-                posicion++;
-                columna++;
-
-                while (posicion < codigo.length() &&
-                        (Character.isDigit(codigo.charAt(posicion)) ||
-                                (!puntoDecimal && codigo.charAt(posicion) == '.'))) {
+            // Identificadores y palabras clave. Los caracteres ASCII se
+            // resuelven con una tabla y el resto con las reglas de Character.
+            int letra = c < 128 ? (INICIO_IDENTIFICADOR[c] ? 1 : 0) : anchoLetra(codigo, posicion, true);
+            if (letra > 0) {
+                int inicio = posicion;
+                posicion += letra;
 
-                    if (codigo.charAt(posicion) == '.') {
-                        puntoDecimal = true;
+                while (posicion < longitud) {
+                    char actual = codigo.charAt(posicion);
+                    if (actual < 128) {
+                        if (!PARTE_IDENTIFICADOR[actual]) {
+                            // Un escape pegado al final puede continuar el nombre
+                            if (actual == '\\' && traducir && esEscapeUnicode(codigo, posicion, longitud)) {
+                                TextoTraducido texto = escanearTraducido(codigo, inicio, limite, linea,
+                                        columna, filtro, receptor);
+                                posicion = texto.posicion;
+                                linea = texto.linea;
+                                columna = texto.columna;
+                                continue escaneo;
+                            }
+                            break;
+                        }
+                        posicion++;
+                    } else {
+                        int ancho = anchoLetra(codigo, posicion, false);
+                        if (ancho == 0) {
+                            break;
+                        }
+                        posicion += ancho;
                     }
-
-                    posicion++;
-                    columna++;
                 }
+                columna += posicion - inicio;
 
-                tokens.add(new Token(TipoToken.LITERAL_NUM,
-                        codigo.substring(inicio, posicion), linea, columna - (posicion - inicio)));
+                // Verificar si es una palabra clave, salvo que se descarten ambos tipos
+                if ((filtro & PALABRAS) != 0) {
+                    TipoToken tipo = esPalabraClave(codigo, inicio, posicion) ? TipoToken.PALABRA_CLAVE
+                            : TipoToken.IDENTIFICADOR;
+                    if (acepta(filtro, tipo)) {
+                        receptor.token(tipo, codigo, inicio, posicion, linea, columna - (posicion - inicio));
+                    }
+                }
                 continue;
             }
 
-            // Identificadores y palabras clave
-            if (Character.isLetter(c) || c == '_') {
+            // Operadores y delimitadores, de uno a cuatro caracteres
+            if (c < 128 && (OPERADOR[c] || DELIMITADOR[c])) {
+                boolean operador = OPERADOR[c];
                 int inicio = posicion;
-                posicion++;
-                columna++;
+                posicion += operador ? longitudOperador(codigo, c, posicion, longitud)
+                        : longitudDelimitador(codigo, c, posicion, longitud);
+                columna += posicion - inicio;
 
-                while (posicion < codigo.length() &&
-                        (Character.isLetterOrDigit(codigo.charAt(posicion)) || codigo.charAt(posicion) == '_')) {
-                    posicion++;
-                    columna++;
+                // Un punto puede formar ... con un escape que viene después del siguiente
+                if (traducir && posicion < longitud && (codigo.charAt(posicion) == '\\'
+                        || (c == '.' && codigo.charAt(posicion) == '.'))
+                        && hayEscape(codigo, posicion, posicion + 2, longitud)) {
+                    TextoTraducido texto = escanearTraducido(codigo, inicio, limite, linea,
+                            columna - (posicion - inicio), filtro, receptor);
+                    posicion = texto.posicion;
+                    linea = texto.linea;
+                    columna = texto.columna;
+                    continue escaneo;
                 }
+                TipoToken tipo = operador ? TipoToken.OPERADOR : TipoToken.DELIMITADOR;
+                if (acepta(filtro, tipo)) {
+                    receptor.token(tipo, codigo, inicio, posicion, linea, columna - (posicion - inicio));
+                }
+                continue;
+            }
 
-                String token = codigo.substring(inicio, posicion);
+            // Un escape Unicode fuera de un token empieza el siguiente
+            if (c == '\\' && traducir && esEscapeUnicode(codigo, posicion, longitud)) {
+                TextoTraducido texto = escanearTraducido(codigo, posicion, limite, linea, columna, filtro, receptor);
+                posicion = texto.posicion;
+                linea = texto.linea;
+                columna = texto.columna;
+                continue escaneo;
+            }
 
-                // Verificar si es una palabra clave
-                boolean esPalabraClave = PALABRAS_CLAVE_JAVA.contains(token);
+            // Si no reconocemos el token
+            if (acepta(filtro, TipoToken.DESCONOCIDO)) {
+                receptor.token(TipoToken.DESCONOCIDO, codigo, posicion, posicion + 1, linea, columna);
+            }
+            posicion++;
+            columna++;
+        }
+        return posicion;
+    }
 
-                tokens.add(new Token(
-                        esPalabraClave ? TipoToken.PALABRA_CLAVE : TipoToken.IDENTIFICADOR,
-                        token, linea, columna - token.length()));
+    /**
+     * Analiza sobre el código traducido desde un inicio de token, de a un
+     * token, hasta el primero que termina sin escapes Unicode pendientes, y
+     * devuelve la vista con la posición del original, la línea y la columna
+     * donde sigue el análisis sin traducir. Los tokens se notifican con sus
+     * posiciones, líneas y columnas en el original.
+     */
+    private static TextoTraducido escanearTraducido(CharSequence codigo, int desde, int limite, int linea,
+            int columna, int filtro, ReceptorTokens receptor) {
+        TextoTraducido texto = new TextoTraducido(codigo, desde, linea, columna, receptor);
+        int indice = 0;
+        int parada = desde;
+        // El primer token, donde se encontró el escape, se analiza siempre
+        while (parada == desde || (parada < limite && parada < texto.finEscapes())) {
+            int siguiente = escanear(texto, indice, indice + 1, 1, 1, filtro, texto, false);
+            // Un token que llega al final de la vista puede seguir después
+            if (texto.cortado(siguiente)) {
+                texto.extender();
                 continue;
             }
+            indice = siguiente;
+            parada = texto.original(indice);
+        }
+        texto.avanzar(parada);
+        return texto;
+    }
 
-            // Operadores y delimitadores
-            if (esOperador(c)) {
-                int inicio = posicion;
+    /**
+     * Verifica si algún escape Unicode empieza en el rango
+     */
+    private static boolean hayEscape(CharSequence codigo, int desde, int hasta, int longitud) {
+        for (int i = desde; i < hasta && i < longitud; i++) {
+            if (codigo.charAt(i) == '\\' && esEscapeUnicode(codigo, i, longitud)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-                // Operadores compuestos de 2 caracteres
-                if (posicion + 1 < codigo.length() && esOperadorCompuesto(c, codigo.charAt(posicion + 1))) {
-                    posicion += 2;
-                    columna += 2;
-                    tokens.add(new Token(TipoToken.OPERADOR, codigo.substring(inicio, posicion), linea, columna - 2));
-                } else {
-                    posicion++;
-                    columna++;
-                    tokens.add(new Token(TipoToken.OPERADOR, String.valueOf(c), linea, columna - 1));
+    /**
+     * Verifica si en la posición empieza un escape Unicode: una barra invertida
+     * precedida por una cantidad par de barras, una o más u y cuatro dígitos
+     * hexadecimales
+     */
+    private static boolean esEscapeUnicode(CharSequence codigo, int posicion, int longitud) {
+        if (posicion >= longitud || codigo.charAt(posicion) != '\\'
+                || longitudEscape(codigo, posicion, longitud) == 0) {
+            return false;
+        }
+        int barras = 0;
+        for (int i = posicion - 1; i >= 0 && codigo.charAt(i) == '\\'; i--) {
+            barras++;
+        }
+        return (barras & 1) == 0;
+    }
+
+    /**
+     * Caracteres del escape Unicode que empieza en la barra de la posición, o
+     * 0 si no tiene la forma de uno
+     */
+    private static int longitudEscape(CharSequence codigo, int posicion, int longitud) {
+        int i = posicion + 1;
+        if (i >= longitud || codigo.charAt(i) != 'u') {
+            return 0;
+        }
+        while (i < longitud && codigo.charAt(i) == 'u') {
+            i++;
+        }
+        if (i + 4 > longitud) {
+            return 0;
+        }
+        for (int fin = i + 4; i < fin; i++) {
+            if (digitoHex(codigo.charAt(i)) < 0) {
+                return 0;
+            }
+        }
+        return i - posicion;
+    }
+
+    /**
+     * Carácter de un escape Unicode, dada la posición siguiente a su último
+     * dígito
+     */
+    private static char valorEscape(CharSequence codigo, int fin) {
+        return (char) (digitoHex(codigo.charAt(fin - 4)) << 12 | digitoHex(codigo.charAt(fin - 3)) << 8
+                | digitoHex(codigo.charAt(fin - 2)) << 4 | digitoHex(codigo.charAt(fin - 1)));
+    }
+
+    /**
+     * Texto del rango con los escapes Unicode traducidos. El rango debe ser
+     * un token, que ya no puede tener barras que no empiecen un escape salvo
+     * en literales y comentarios.
+     */
+    private static String traducirEscapes(CharSequence codigo, int inicio, int fin) {
+        StringBuilder texto = new StringBuilder(fin - inicio);
+        for (int i = inicio; i < fin; i++) {
+            int escape = codigo.charAt(i) == '\\' ? longitudEscape(codigo, i, fin) : 0;
+            if (escape == 0) {
+                texto.append(codigo.charAt(i));
+            } else {
+                texto.append(valorEscape(codigo, i + escape));
+                i += escape - 1;
+            }
+        }
+        return texto.toString();
+    }
+
+    /**
+     * Primer carácter de un token, traducido si está escrito como escape
+     * Unicode
+     */
+    private static char primerCaracter(CharSequence codigo, int inicio, int fin) {
+        int escape = codigo.charAt(inicio) == '\\' ? longitudEscape(codigo, inicio, fin) : 0;
+        return escape == 0 ? codigo.charAt(inicio) : valorEscape(codigo, inicio + escape);
+    }
+
+    /**
+     * Carácter de un token de un solo carácter, como la mayoría de los
+     * delimitadores, traducido si está escrito como escape Unicode
+     *
+     * @return El carácter, o 0 si el token tiene más de uno
+     */
+    static char caracterUnico(CharSequence codigo, int inicio, int fin) {
+        int escape = codigo.charAt(inicio) == '\\' ? longitudEscape(codigo, inicio, fin) : 0;
+        if (escape == 0) {
+            return fin - inicio == 1 ? codigo.charAt(inicio) : 0;
+        }
+        return escape == fin - inicio ? valorEscape(codigo, fin) : 0;
+    }
+
+    /**
+     * Verifica si el rango tiene alguna barra invertida, que en un nombre sólo
+     * puede empezar un escape Unicode
+     */
+    private static boolean tieneBarra(CharSequence codigo, int inicio, int fin) {
+        for (int i = inicio; i < fin; i++) {
+            if (codigo.charAt(i) == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Valor de un dígito hexadecimal ASCII, o -1 si no lo es
+     */
+    private static int digitoHex(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static boolean esDigito(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Verifica si un escape Unicode que sigue a un número, después de este
+     * carácter, puede continuarlo: el escape mismo o una e o una p que no
+     * llegaron a formar un exponente
+     */
+    private static boolean esFinEscapable(char c) {
+        return c == '\\' || c == 'e' || c == 'E' || c == 'p' || c == 'P';
+    }
+
+    /**
+     * Verifica si en la posición empieza un bloque de texto: tres comillas
+     * seguidas sólo de espacios hasta el fin de la línea
+     */
+    private static boolean esInicioBloqueTexto(CharSequence codigo, int posicion, int longitud) {
+        if (posicion + 2 >= longitud || codigo.charAt(posicion + 1) != '"' || codigo.charAt(posicion + 2) != '"') {
+            return false;
+        }
+        int i = finEspacios(codigo, posicion + 3, longitud);
+        return i < longitud && (codigo.charAt(i) == '\n' || codigo.charAt(i) == '\r');
+    }
+
+    /**
+     * Posición siguiente a los espacios y tabuladores desde la posición, sin
+     * pasar de línea
+     */
+    private static int finEspacios(CharSequence codigo, int posicion, int longitud) {
+        while (posicion < longitud) {
+            char c = codigo.charAt(posicion);
+            if (c != ' ' && c != '\t' && c != '\f') {
+                break;
+            }
+            posicion++;
+        }
+        return posicion;
+    }
+
+    /**
+     * Posición siguiente al literal numérico que empieza en la posición:
+     * enteros decimales, octales, hexadecimales y binarios, decimales con
+     * exponente y flotantes hexadecimales, con guiones bajos y sufijo de tipo
+     */
+    private static int finNumero(CharSequence codigo, int posicion, int longitud) {
+        if (codigo.charAt(posicion) == '0' && posicion + 1 < longitud) {
+            char base = codigo.charAt(posicion + 1);
+            if (base == 'x' || base == 'X') {
+                int i = digitos(codigo, posicion + 2, longitud, 16);
+                boolean entero = true;
+                if (i < longitud && codigo.charAt(i) == '.') {
+                    i = digitos(codigo, i + 1, longitud, 16);
+                    entero = false;
                 }
-                continue;
+                if (i < longitud && (codigo.charAt(i) == 'p' || codigo.charAt(i) == 'P')) {
+                    int exponente = exponente(codigo, i, longitud);
+                    if (exponente > i) {
+                        return sufijo(codigo, exponente, longitud, false, true);
+                    }
+                }
+                return sufijo(codigo, i, longitud, entero, false);
+            }
+            if (base == 'b' || base == 'B') {
+                return sufijo(codigo, digitos(codigo, posicion + 2, longitud, 2), longitud, true, false);
             }
+        }
 
-            // Delimitadores
-            if (esDelimitador(c)) {
-                tokens.add(new Token(TipoToken.DELIMITADOR, String.valueOf(c), linea, columna));
-                posicion++;
-                columna++;
-                continue;
+        // Decimales; los octales tienen la misma forma
+        int i = digitos(codigo, posicion, longitud, 10);
+        boolean entero = true;
+        if (i < longitud && codigo.charAt(i) == '.') {
+            i = digitos(codigo, i + 1, longitud, 10);
+            entero = false;
+        }
+        if (i < longitud && (codigo.charAt(i) == 'e' || codigo.charAt(i) == 'E')) {
+            int exponente = exponente(codigo, i, longitud);
+            if (exponente > i) {
+                i = exponente;
+                entero = false;
             }
+        }
+        return sufijo(codigo, i, longitud, entero, true);
+    }
 
-            // Si no reconocemos el token
-            tokens.add(new Token(TipoToken.DESCONOCIDO, String.valueOf(c), linea, columna));
+    /**
+     * Posición siguiente a los dígitos de la base y guiones bajos desde la
+     * posición
+     */
+    private static int digitos(CharSequence codigo, int posicion, int longitud, int base) {
+        while (posicion < longitud) {
+            char c = codigo.charAt(posicion);
+            int valor = digitoHex(c);
+            if (c != '_' && (valor < 0 || valor >= base)) {
+                break;
+            }
             posicion++;
-            columna++;
         }
+        return posicion;
+    }
 
-        return tokens;
+    /**
+     * Posición siguiente al exponente que empieza en la e o la p de la
+     * posición, o la misma posición si no le siguen dígitos
+     */
+    private static int exponente(CharSequence codigo, int posicion, int longitud) {
+        int i = posicion + 1;
+        if (i < longitud && (codigo.charAt(i) == '+' || codigo.charAt(i) == '-')) {
+            i++;
+        }
+        return i < longitud && esDigito(codigo.charAt(i)) ? digitos(codigo, i, longitud, 10) : posicion;
+    }
+
+    /**
+     * Incluye el sufijo de tipo del literal, si lo tiene: L para los enteros y
+     * F o D para los que admiten ser flotantes
+     */
+    private static int sufijo(CharSequence codigo, int posicion, int longitud, boolean entero, boolean flotante) {
+        if (posicion < longitud) {
+            char c = codigo.charAt(posicion);
+            if ((entero && (c == 'l' || c == 'L'))
+                    || (flotante && (c == 'f' || c == 'F' || c == 'd' || c == 'D'))) {
+                return posicion + 1;
+            }
+        }
+        return posicion;
+    }
+
+    // Caracteres ASCII que empiezan o continúan un identificador, y los que
+    // empiezan un operador o un delimitador
+    private static final boolean[] INICIO_IDENTIFICADOR = new boolean[128];
+    private static final boolean[] PARTE_IDENTIFICADOR = new boolean[128];
+    private static final boolean[] OPERADOR = new boolean[128];
+    private static final boolean[] DELIMITADOR = new boolean[128];
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            INICIO_IDENTIFICADOR[c] = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$';
+            PARTE_IDENTIFICADOR[c] = INICIO_IDENTIFICADOR[c] || (c >= '0' && c <= '9');
+            OPERADOR[c] = esOperador(c);
+            DELIMITADOR[c] = esDelimitador(c);
+        }
+    }
+
+    /**
+     * Caracteres que ocupa la letra de identificador no ASCII de la posición,
+     * contando los pares suplentes como dos, o 0 si no es una
+     */
+    private static int anchoLetra(CharSequence codigo, int posicion, boolean primera) {
+        int punto = Character.codePointAt(codigo, posicion);
+        boolean letra = primera ? Character.isJavaIdentifierStart(punto) : Character.isJavaIdentifierPart(punto);
+        return letra ? Character.charCount(punto) : 0;
+    }
+
+    /**
+     * Verifica si el rango del código es una palabra clave sin extraer el texto.
+     * Las palabras clave se guardan en una tabla de direccionamiento abierto
+     * indexada por el mismo hash que usa String.
+     */
+    static boolean esPalabraClave(CharSequence codigo, int inicio, int fin) {
+        int longitud = fin - inicio;
+        if (longitud < 2 || longitud > 12) {
+            return false;
+        }
+
+        for (int i = hashRango(codigo, inicio, fin) & MASCARA_CLAVES; TABLA_CLAVES[i] != null; i = (i + 1)
+                & MASCARA_CLAVES) {
+            if (rangoIgual(TABLA_CLAVES[i], codigo, inicio, fin)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Calcula el hash de un rango de caracteres, equivalente a String.hashCode()
+     */
+    static int hashRango(CharSequence codigo, int inicio, int fin) {
+        int h = 0;
+        for (int i = inicio; i < fin; i++) {
+            h = 31 * h + codigo.charAt(i);
+        }
+        return h;
+    }
+
+    /**
+     * Compara un texto con un rango de caracteres
+     */
+    static boolean rangoIgual(CharSequence texto, CharSequence codigo, int inicio, int fin) {
+        if (texto.length() != fin - inicio) {
+            return false;
+        }
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) != codigo.charAt(inicio + i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -329,19 +1183,258 @@ public class AnalizadorJava {
      */
     private static boolean esDelimitador(char c) {
         return c == '(' || c == ')' || c == '{' || c == '}' || c == '[' || c == ']' ||
-                c == ';' || c == ',' || c == '.' || c == ':';
+                c == ';' || c == ',' || c == '.' || c == ':' || c == '@';
+    }
+
+    /**
+     * Caracteres del operador más largo que empieza con c1 en la posición: los
+     * compuestos de dos, ->, los desplazamientos <<, >> y >>> y sus
+     * asignaciones
+     */
+    private static int longitudOperador(CharSequence codigo, char c1, int posicion, int longitud) {
+        if (posicion + 1 >= longitud) {
+            return 1;
+        }
+        char c2 = codigo.charAt(posicion + 1);
+        if ((c1 == '<' || c1 == '>') && c2 == c1) {
+            int i = posicion + 2;
+            if (c1 == '>' && i < longitud && codigo.charAt(i) == '>') {
+                i++;
+            }
+            if (i < longitud && codigo.charAt(i) == '=') {
+                i++;
+            }
+            return i - posicion;
+        }
+        return (c1 == '-' && c2 == '>') || esOperadorCompuesto(c1, c2) ? 2 : 1;
+    }
+
+    /**
+     * Caracteres del delimitador que empieza con c en la posición: ... y :: o uno
+     */
+    private static int longitudDelimitador(CharSequence codigo, char c, int posicion, int longitud) {
+        if (c == '.' && posicion + 2 < longitud && codigo.charAt(posicion + 1) == '.'
+                && codigo.charAt(posicion + 2) == '.') {
+            return 3;
+        }
+        if (c == ':' && posicion + 1 < longitud && codigo.charAt(posicion + 1) == ':') {
+            return 2;
+        }
+        return 1;
     }
 
     /**
      * Verifica si dos caracteres forman un operador compuesto
      */
     private static boolean esOperadorCompuesto(char c1, char c2) {
-        String op = c1 + "" + c2;
-        return op.equals("==") || op.equals("!=") || op.equals("<=") || op.equals(">=") ||
-                op.equals("&&") || op.equals("||") || op.equals("++") || op.equals("--") ||
-                op.equals("+=") || op.equals("-=") || op.equals("*=") || op.equals("/=") ||
-                op.equals("%=") || op.equals("<<") || op.equals(">>") || op.equals("&=") ||
-                op.equals("|=") || op.equals("^=");
+        switch (c2) {
+            case '=':
+                // ==, !=, <=, >=, +=, -=, *=, /=, %=, &=, |=, ^=
+                return c1 == '=' || c1 == '!' || c1 == '<' || c1 == '>' || c1 == '+' || c1 == '-' ||
+                        c1 == '*' || c1 == '/' || c1 == '%' || c1 == '&' || c1 == '|' || c1 == '^';
+            case '&':
+            case '|':
+            case '+':
+            case '-':
+                // &&, ||, ++, --
+                return c1 == c2;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Vista del código con los escapes Unicode traducidos a partir de una
+     * posición. Sólo guarda dónde está cada escape y lee los demás caracteres
+     * del original al pedirlos, casi siempre en orden. Los escapes se buscan
+     * hasta el final de una línea y la vista se extiende cuando un token llega
+     * a ese final, así que analizar un token no recorre el resto del código.
+     * Como receptor, pasa los tokens del texto traducido a otro receptor con
+     * las posiciones, líneas y columnas del original, que es lo que ve el
+     * usuario.
+     */
+    private static final class TextoTraducido implements CharSequence, ReceptorTokens {
+        // Caracteres del original que cubre la vista al crearla, como mínimo
+        private static final int VENTANA = 256;
+
+        private final CharSequence original;
+        private final int desde;
+        private final ReceptorTokens receptor;
+
+        // Por cada escape: posición traducida, rango original y carácter
+        private int[] traducidos = new int[8];
+        private int[] inicios = new int[8];
+        private int[] fines = new int[8];
+        private char[] valores = new char[8];
+        private int escapes;
+        private int ultimo = -1;
+
+        // Posición del original donde termina la vista, siempre después de un
+        // salto de línea o al final, y largo traducido de la vista
+        private int frontera;
+        private int longitud;
+
+        // Posición del original hasta la que se contaron líneas y columnas
+        private int posicion;
+        private int linea;
+        private int columna;
+
+        TextoTraducido(CharSequence original, int desde, int linea, int columna, ReceptorTokens receptor) {
+            this.original = original;
+            this.desde = desde;
+            this.receptor = receptor;
+            frontera = desde;
+            posicion = desde;
+            this.linea = linea;
+            this.columna = columna;
+            buscarEscapes(desde + VENTANA);
+        }
+
+        /**
+         * Duplica lo que cubre la vista
+         */
+        void extender() {
+            buscarEscapes(frontera + Math.max(VENTANA, frontera - desde));
+        }
+
+        /**
+         * Verifica si un token que termina en la posición traducida pudo quedar
+         * cortado por el final de la vista
+         */
+        boolean cortado(int indice) {
+            return indice >= longitud && frontera < original.length();
+        }
+
+        /**
+         * Lleva la frontera hasta el salto de línea siguiente a la posición, o
+         * hasta el final, y registra los escapes que encuentra en el camino
+         */
+        private void buscarEscapes(int hasta) {
+            int total = original.length();
+            int quitados = frontera - desde - longitud;
+            int barras = 0;
+            int i = frontera;
+            for (; i < total && (i < hasta || original.charAt(i - 1) != '\n'); i++) {
+                if (original.charAt(i) != '\\') {
+                    barras = 0;
+                    continue;
+                }
+                int escape = (barras & 1) == 0 ? longitudEscape(original, i, total) : 0;
+                if (escape == 0) {
+                    barras++;
+                    continue;
+                }
+                agregar(i - desde - quitados, i, i + escape, valorEscape(original, i + escape));
+                quitados += escape - 1;
+                i += escape - 1;
+                barras = 0;
+            }
+            frontera = i;
+            longitud = i - desde - quitados;
+        }
+
+        private void agregar(int traducido, int inicio, int fin, char valor) {
+            if (escapes == traducidos.length) {
+                int capacidad = escapes * 2;
+                traducidos = Arrays.copyOf(traducidos, capacidad);
+                inicios = Arrays.copyOf(inicios, capacidad);
+                fines = Arrays.copyOf(fines, capacidad);
+                valores = Arrays.copyOf(valores, capacidad);
+            }
+            traducidos[escapes] = traducido;
+            inicios[escapes] = inicio;
+            fines[escapes] = fin;
+            valores[escapes] = valor;
+            escapes++;
+        }
+
+        /**
+         * Posición del original siguiente al último escape encontrado
+         */
+        int finEscapes() {
+            return escapes == 0 ? desde : fines[escapes - 1];
+        }
+
+        /**
+         * Último escape en la posición traducida o antes, o -1. Prueba primero
+         * el último consultado y el siguiente, porque la lectura es en orden.
+         */
+        private int escapeAntes(int indice) {
+            for (int k = ultimo, fin = Math.min(ultimo + 2, escapes); k < fin; k++) {
+                if ((k < 0 || traducidos[k] <= indice) && (k + 1 == escapes || traducidos[k + 1] > indice)) {
+                    return ultimo = k;
+                }
+            }
+            int escape = Arrays.binarySearch(traducidos, 0, escapes, indice);
+            return ultimo = escape >= 0 ? escape : -escape - 2;
+        }
+
+        /**
+         * Posición en el original de una posición traducida
+         */
+        int original(int indice) {
+            int escape = escapeAntes(indice);
+            if (escape < 0) {
+                return desde + indice;
+            }
+            return traducidos[escape] == indice ? inicios[escape] : fines[escape] + indice - traducidos[escape] - 1;
+        }
+
+        /**
+         * Cuenta líneas y columnas del original hasta la posición
+         */
+        void avanzar(int hasta) {
+            for (; posicion < hasta; posicion++) {
+                if (original.charAt(posicion) == '\n') {
+                    linea++;
+                    columna = 1;
+                } else {
+                    columna++;
+                }
+            }
+        }
+
+        @Override
+        public void token(TipoToken tipo, CharSequence fuente, int inicio, int fin, int lineaTraducida,
+                int columnaTraducida) {
+            // Se notifica cuando se vuelva a analizar con la vista extendida
+            if (cortado(fin)) {
+                return;
+            }
+            int inicioOriginal = original(inicio);
+            int finOriginal = original(fin);
+            avanzar(inicioOriginal);
+            receptor.token(tipo, original, inicioOriginal, finOriginal, linea, columna);
+        }
+
+        @Override
+        public int length() {
+            return longitud;
+        }
+
+        @Override
+        public char charAt(int indice) {
+            int escape = escapeAntes(indice);
+            if (escape < 0) {
+                return original.charAt(desde + indice);
+            }
+            return traducidos[escape] == indice ? valores[escape]
+                    : original.charAt(fines[escape] + indice - traducidos[escape] - 1);
+        }
+
+        @Override
+        public CharSequence subSequence(int inicio, int fin) {
+            StringBuilder texto = new StringBuilder(fin - inicio);
+            for (int i = inicio; i < fin; i++) {
+                texto.append(charAt(i));
+            }
+            return texto.toString();
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, longitud).toString();
+        }
     }
 
     /**
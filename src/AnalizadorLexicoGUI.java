@@ -1,8 +1,17 @@
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.text.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 /**
@@ -20,9 +29,22 @@ public class AnalizadorLexicoGUI extends JFrame {
     private JButton btnJava;
     private JButton btnAnalizar;
     private JButton btnLimpiar;
+    private JButton btnIndice;
+    private JButton btnAbrir;
+    private JButton btnExportar;
+    private JButton btnEsquema;
     private JComboBox<String> cboTipoAnalisis;
     private JLabel lblEstado;
 
+    // Índice de identificadores cargado para las búsquedas entre archivos
+    private IndiceInvertido indice;
+
+    // Archivo grande abierto con DocumentoMapeado, o null si se edita un texto
+    private TextoMapeado textoMapeado;
+
+    // Estructura del último código Java analizado, o null si no hay una vigente
+    private IndiceEstructural estructura;
+
     /**
      * Constructor de la interfaz gráfica
      */
@@ -57,12 +79,28 @@ public class AnalizadorLexicoGUI extends JFrame {
         btnLimpiar = new JButton("Limpiar");
         btnLimpiar.addActionListener(e -> limpiarTodo());
 
+        btnIndice = new JButton("Buscar en índice");
+        btnIndice.addActionListener(e -> buscarEnIndice());
+
+        btnAbrir = new JButton("Abrir archivo");
+        btnAbrir.addActionListener(e -> abrirArchivo());
+
+        btnExportar = new JButton("Exportar");
+        btnExportar.addActionListener(e -> exportarTokens());
+
+        btnEsquema = new JButton("Esquema");
+        btnEsquema.addActionListener(e -> mostrarEsquema());
+
         panelBotones.add(new JLabel("Tipo: "));
         panelBotones.add(cboTipoAnalisis);
+        panelBotones.add(btnAbrir);
         panelBotones.add(btnRobot);
         panelBotones.add(btnJava);
         panelBotones.add(btnAnalizar);
         panelBotones.add(btnLimpiar);
+        panelBotones.add(btnIndice);
+        panelBotones.add(btnExportar);
+        panelBotones.add(btnEsquema);
 
         // Etiqueta para el título
         JLabel lblTitulo = new JLabel("Analizador Léxico", JLabel.CENTER);
@@ -80,6 +118,16 @@ public class AnalizadorLexicoGUI extends JFrame {
         JLabel lblInstrucciones = new JLabel("Instrucciones", JLabel.CENTER);
         txtCodigo = new JTextArea();
         txtCodigo.setFont(new Font("Monospaced", Font.PLAIN, 14));
+        vigilarCambios(txtCodigo.getDocument());
+
+        // Ctrl+B salta a la pareja de la llave, paréntesis o corchete
+        txtCodigo.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_B, InputEvent.CTRL_DOWN_MASK), "irAPareja");
+        txtCodigo.getActionMap().put("irAPareja", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                irAPareja();
+            }
+        });
 
         // Agregar numeración de líneas al JTextArea
         JScrollPane scrollCodigo = new JScrollPane(txtCodigo);
@@ -185,6 +233,7 @@ public class AnalizadorLexicoGUI extends JFrame {
                 "r1.abrirGarra()\n" + // Sin paréntesis pero será identificado como acción
                 "r1.finalizar()"; // Sin paréntesis pero será identificado como acción
 
+        usarDocumentoEditable();
         txtCodigo.setText(codigoRobot);
         cboTipoAnalisis.setSelectedItem("Robot");
         lblEstado.setText("Código de ejemplo de robot cargado. Presione 'Analizar' para procesar.");
@@ -209,6 +258,7 @@ public class AnalizadorLexicoGUI extends JFrame {
                 "    }\n" +
                 "}";
 
+        usarDocumentoEditable();
         txtCodigo.setText(codigoJava);
         cboTipoAnalisis.setSelectedItem("Java");
         lblEstado.setText("Código de ejemplo de Java cargado. Presione 'Analizar' para procesar.");
@@ -218,6 +268,11 @@ public class AnalizadorLexicoGUI extends JFrame {
      * Analizar el código fuente
      */
     private void analizarCodigo() {
+        if (textoMapeado != null) {
+            analizarArchivoMapeado();
+            return;
+        }
+
         String codigo = txtCodigo.getText();
 
         if (codigo.trim().isEmpty()) {
@@ -250,7 +305,8 @@ public class AnalizadorLexicoGUI extends JFrame {
      */
     private void analizarCodigoRobot(String codigo) {
         // Analizar el código
-        List<AnalizadorRobot.Token> tokens = AnalizadorRobot.analizar(codigo);
+        PoolSimbolos pool = new PoolSimbolos();
+        List<AnalizadorRobot.Token> tokens = AnalizadorRobot.analizar(codigo, pool);
 
         // Procesar los tokens para la tabla
         List<Object[]> filasTabla = AnalizadorRobot.procesarParaTabla(tokens);
@@ -261,19 +317,12 @@ public class AnalizadorLexicoGUI extends JFrame {
         }
 
         // Actualizar la tabla de símbolos
-        // Recolectar identificadores
+        // Recolectar identificadores (cada símbolo del pool se registra una vez)
+        BitSet registrados = new BitSet(pool.tamano());
         for (AnalizadorRobot.Token token : tokens) {
             if (token.getTipo() == AnalizadorRobot.TipoToken.IDENTIFICADOR) {
-                // Verificar si ya existe en la tabla
-                boolean existe = false;
-                for (int i = 0; i < modeloSimbolos.getRowCount(); i++) {
-                    if (modeloSimbolos.getValueAt(i, 0).equals(token.getLexema())) {
-                        existe = true;
-                        break;
-                    }
-                }
-
-                if (!existe) {
+                if (!registrados.get(token.getSimbolo())) {
+                    registrados.set(token.getSimbolo());
                     modeloSimbolos.addRow(new Object[] {
                             token.getLexema(),
                             "Variable",
@@ -312,7 +361,10 @@ public class AnalizadorLexicoGUI extends JFrame {
      */
     private void analizarCodigoJava(String codigo) {
         // Analizar el código
-        List<AnalizadorJava.Token> tokens = AnalizadorJava.analizar(codigo);
+        PoolSimbolos pool = new PoolSimbolos();
+        IndiceEstructural indiceEstructural = new IndiceEstructural();
+        List<AnalizadorJava.Token> tokens = AnalizadorJava.analizar(codigo, pool, indiceEstructural.receptor());
+        estructura = indiceEstructural;
 
         // Procesar los tokens para la tabla
         List<Object[]> filasTabla = AnalizadorJava.procesarParaTabla(tokens);
@@ -323,18 +375,12 @@ public class AnalizadorLexicoGUI extends JFrame {
         }
 
         // Actualizar la tabla de símbolos (solo identificadores)
+        BitSet registrados = new BitSet(pool.tamano());
         for (AnalizadorJava.Token token : tokens) {
             if (token.getTipo() == AnalizadorJava.TipoToken.IDENTIFICADOR) {
                 // Verificar si ya existe en la tabla
-                boolean existe = false;
-                for (int i = 0; i < modeloSimbolos.getRowCount(); i++) {
-                    if (modeloSimbolos.getValueAt(i, 0).equals(token.getLexema())) {
-                        existe = true;
-                        break;
-                    }
-                }
-
-                if (!existe) {
+                if (!registrados.get(token.getSimbolo())) {
+                    registrados.set(token.getSimbolo());
                     modeloSimbolos.addRow(new Object[] {
                             token.getLexema(),
                             "Variable",
@@ -345,10 +391,300 @@ public class AnalizadorLexicoGUI extends JFrame {
         }
     }
 
+    /**
+     * Abrir un archivo de código. Los archivos grandes se muestran con un
+     * DocumentoMapeado de solo lectura en lugar de copiarlos al JTextArea.
+     */
+    private void abrirArchivo() {
+        JFileChooser selector = new JFileChooser();
+        selector.setDialogTitle("Abrir archivo");
+        if (selector.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        Path archivo = selector.getSelectedFile().toPath();
+        try {
+            limpiarTablas();
+            if (Files.size(archivo) >= TextoMapeado.UMBRAL) {
+                abrirArchivoMapeado(archivo);
+            } else {
+                usarDocumentoEditable();
+                txtCodigo.setText(new String(Files.readAllBytes(archivo), StandardCharsets.UTF_8));
+                txtCodigo.setCaretPosition(0);
+                lblEstado.setText(archivo.getFileName() + " cargado. Presione 'Analizar' para procesar.");
+            }
+        } catch (IOException e) {
+            lblEstado.setText("Error al abrir el archivo: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Mapear un archivo grande en segundo plano, porque decodificarlo y contar
+     * sus líneas recorre todo el archivo, y mostrarlo al terminar. Mientras
+     * tanto no se puede abrir otro archivo ni analizar el que está abierto.
+     */
+    private void abrirArchivoMapeado(final Path archivo) {
+        btnAbrir.setEnabled(false);
+        btnAnalizar.setEnabled(false);
+        lblEstado.setText("Abriendo " + archivo.getFileName() + "...");
+
+        new SwingWorker<TextoMapeado, Void>() {
+            @Override
+            protected TextoMapeado doInBackground() throws IOException {
+                TextoMapeado texto = new TextoMapeado(archivo);
+                texto.getLineas();
+                return texto;
+            }
+
+            @Override
+            protected void done() {
+                btnAbrir.setEnabled(true);
+                btnAnalizar.setEnabled(true);
+                TextoMapeado texto;
+                try {
+                    texto = get();
+                } catch (Exception e) {
+                    Throwable causa = e.getCause() != null ? e.getCause() : e;
+                    lblEstado.setText("Error al abrir el archivo: " + causa.getMessage());
+                    return;
+                }
+
+                textoMapeado = texto;
+                txtCodigo.setDocument(new DocumentoMapeado(texto));
+                txtCodigo.setEditable(false);
+                lblEstado.setText(archivo.getFileName() + " abierto en modo de solo lectura ("
+                        + texto.getLineas() + " líneas). Presione 'Analizar' para procesar.");
+            }
+        }.execute();
+    }
+
+    /**
+     * Volver a un documento editable si hay un archivo mapeado abierto
+     */
+    private void usarDocumentoEditable() {
+        if (textoMapeado != null) {
+            textoMapeado = null;
+            txtCodigo.setDocument(new PlainDocument());
+            txtCodigo.setEditable(true);
+            vigilarCambios(txtCodigo.getDocument());
+        }
+    }
+
+    /**
+     * Analizar el archivo mapeado en segundo plano. Los tokens se guardan en un
+     * ModeloTablaTokens que lee los lexemas del mismo archivo, y la tabla de
+     * símbolos recibe un identificador por cada símbolo nuevo del pool.
+     */
+    private void analizarArchivoMapeado() {
+        final TextoMapeado texto = textoMapeado;
+        final boolean robot = "Robot".equals(cboTipoAnalisis.getSelectedItem());
+        final ModeloTablaTokens modelo = new ModeloTablaTokens(texto, robot);
+        final List<Object[]> simbolos = new ArrayList<>();
+        final IndiceEstructural indiceEstructural = robot ? null : new IndiceEstructural();
+
+        limpiarTablas();
+        btnAnalizar.setEnabled(false);
+        lblEstado.setText("Analizando...");
+
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() {
+                PoolSimbolos pool = new PoolSimbolos();
+                if (robot) {
+                    AnalizadorRobot.ReceptorTokens receptor = modelo.receptorRobot();
+                    AnalizadorRobot.analizar(texto, (tipo, fuente, inicio, fin, linea, columna) -> {
+                        receptor.token(tipo, fuente, inicio, fin, linea, columna);
+                        if (tipo == AnalizadorRobot.TipoToken.IDENTIFICADOR) {
+                            registrarSimbolo(pool, fuente, inicio, fin, "");
+                        }
+                    });
+                } else {
+                    AnalizadorJava.ReceptorTokens receptor = indiceEstructural.receptor(modelo.receptorJava());
+                    AnalizadorJava.analizar(texto, (tipo, fuente, inicio, fin, linea, columna) -> {
+                        receptor.token(tipo, fuente, inicio, fin, linea, columna);
+                        if (tipo == AnalizadorJava.TipoToken.IDENTIFICADOR) {
+                            registrarSimbolo(pool, fuente, inicio, fin, linea);
+                        }
+                    });
+                }
+                return null;
+            }
+
+            private void registrarSimbolo(PoolSimbolos pool, CharSequence fuente, int inicio, int fin,
+                    Object valor) {
+                int antes = pool.tamano();
+                // Traduce los escapes Unicode de los nombres Java; los de robot
+                // no tienen barras invertidas y quedan igual
+                int simbolo = AnalizadorJava.internar(pool, fuente, inicio, fin);
+                if (pool.tamano() > antes) {
+                    simbolos.add(new Object[] { pool.nombre(simbolo), "Variable", valor });
+                }
+            }
+
+            @Override
+            protected void done() {
+                btnAnalizar.setEnabled(true);
+                try {
+                    get();
+                } catch (Exception e) {
+                    lblEstado.setText("Error durante el análisis: " + e.getMessage());
+                    return;
+                }
+                // El usuario pudo haber cerrado el archivo mientras se analizaba
+                if (texto != textoMapeado) {
+                    return;
+                }
+
+                modelo.terminar();
+                tblTokens.setModel(modelo);
+                estructura = indiceEstructural;
+                for (Object[] fila : simbolos) {
+                    modeloSimbolos.addRow(fila);
+                }
+                if (robot) {
+                    agregarMetodosConValor(modelo);
+                }
+                lblEstado.setText("Análisis completado con éxito: " + modelo.getRowCount() + " tokens");
+            }
+        }.execute();
+    }
+
+    /**
+     * Agregar a la tabla de símbolos el último valor asignado a cada método de
+     * robot, como en el análisis de un texto editable
+     */
+    private void agregarMetodosConValor(ModeloTablaTokens modelo) {
+        for (int fila = 0; fila < modelo.getRowCount(); fila++) {
+            if (!"Si".equals(modelo.getValueAt(fila, 3))) {
+                continue;
+            }
+
+            Object nombre = modelo.getValueAt(fila, 0);
+            Object valor = modelo.getValueAt(fila, 2);
+            boolean existe = false;
+            for (int i = 0; i < modeloSimbolos.getRowCount(); i++) {
+                if (modeloSimbolos.getValueAt(i, 0).equals(nombre)) {
+                    existe = true;
+                    modeloSimbolos.setValueAt(valor, i, 2);
+                    break;
+                }
+            }
+            if (!existe) {
+                modeloSimbolos.addRow(new Object[] { nombre, "Método", valor });
+            }
+        }
+    }
+
+    /**
+     * Exportar los tokens del código a CSV o JSON Lines (según la extensión
+     * elegida) sin construir las filas en memoria
+     */
+    private void exportarTokens() {
+        final CharSequence codigo = textoMapeado != null ? textoMapeado : txtCodigo.getText();
+        if (codigo.length() == 0) {
+            lblEstado.setText("Error: No hay código para exportar");
+            return;
+        }
+
+        JFileChooser selector = new JFileChooser();
+        selector.setDialogTitle("Exportar tokens");
+        selector.setAcceptAllFileFilterUsed(false);
+        selector.addChoosableFileFilter(new FileNameExtensionFilter("CSV (*.csv)", "csv"));
+        selector.addChoosableFileFilter(new FileNameExtensionFilter("JSON Lines (*.jsonl)", "jsonl"));
+        if (selector.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        // Agregar la extensión del filtro elegido si el nombre no la tiene
+        Path elegido = selector.getSelectedFile().toPath();
+        String extension = ((FileNameExtensionFilter) selector.getFileFilter()).getExtensions()[0];
+        if (!elegido.getFileName().toString().toLowerCase().endsWith("." + extension)) {
+            elegido = elegido.resolveSibling(elegido.getFileName() + "." + extension);
+        }
+
+        final Path destino = elegido;
+        final boolean robot = "Robot".equals(cboTipoAnalisis.getSelectedItem());
+        btnExportar.setEnabled(false);
+        lblEstado.setText("Exportando...");
+
+        new SwingWorker<Long, Void>() {
+            @Override
+            protected Long doInBackground() throws IOException {
+                ExportadorTokens.Formato formato = ExportadorTokens.Formato.deArchivo(destino);
+                return robot ? ExportadorTokens.exportarRobot(codigo, destino, formato)
+                        : ExportadorTokens.exportarJava(codigo, destino, formato);
+            }
+
+            @Override
+            protected void done() {
+                btnExportar.setEnabled(true);
+                try {
+                    lblEstado.setText(get() + " tokens exportados a " + destino.getFileName());
+                } catch (Exception e) {
+                    Throwable causa = e.getCause() != null ? e.getCause() : e;
+                    lblEstado.setText("Error al exportar: " + causa.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Buscar las apariciones de un identificador en un índice guardado. Si el
+     * texto termina con * se buscan todos los identificadores con ese prefijo.
+     */
+    private void buscarEnIndice() {
+        if (indice == null) {
+            JFileChooser selector = new JFileChooser();
+            selector.setDialogTitle("Seleccionar índice");
+            if (selector.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            try {
+                indice = IndiceInvertido.cargar(selector.getSelectedFile().toPath());
+            } catch (IOException e) {
+                lblEstado.setText("Error al cargar el índice: " + e.getMessage());
+                return;
+            }
+        }
+
+        // Proponer el símbolo seleccionado en la tabla
+        int filaSeleccionada = tblSimbolos.getSelectedRow();
+        Object inicial = filaSeleccionada >= 0 ? modeloSimbolos.getValueAt(filaSeleccionada, 0) : "";
+        String texto = (String) JOptionPane.showInputDialog(this,
+                "Identificador (termine con * para buscar por prefijo):", "Buscar en índice",
+                JOptionPane.QUESTION_MESSAGE, null, null, inicial);
+        if (texto == null || texto.trim().isEmpty()) {
+            return;
+        }
+        texto = texto.trim();
+
+        List<Object[]> filas;
+        String[] columnas;
+        if (texto.endsWith("*")) {
+            filas = indice.buscarPrefijo(texto.substring(0, texto.length() - 1));
+            columnas = new String[] { "IDENTIFICADOR", "ARCHIVO", "LÍNEA", "COLUMNA" };
+        } else {
+            filas = indice.buscar(texto);
+            columnas = new String[] { "ARCHIVO", "LÍNEA", "COLUMNA" };
+        }
+
+        DefaultTableModel modeloResultados = new DefaultTableModel(columnas, 0);
+        for (Object[] fila : filas) {
+            modeloResultados.addRow(fila);
+        }
+        JScrollPane scrollResultados = new JScrollPane(new JTable(modeloResultados));
+        scrollResultados.setPreferredSize(new Dimension(600, 300));
+
+        lblEstado.setText(filas.size() + " apariciones de " + texto);
+        JOptionPane.showMessageDialog(this, scrollResultados, "Apariciones de " + texto,
+                JOptionPane.PLAIN_MESSAGE);
+    }
+
     /**
      * Limpiar todas las tablas y campos
      */
     private void limpiarTodo() {
+        usarDocumentoEditable();
         txtCodigo.setText("");
         limpiarTablas();
         lblEstado.setText("Todo limpiado");
@@ -358,8 +694,101 @@ public class AnalizadorLexicoGUI extends JFrame {
      * Limpiar solo las tablas
      */
     private void limpiarTablas() {
+        if (tblTokens.getModel() != modeloTabla) {
+            tblTokens.setModel(modeloTabla);
+        }
         modeloTabla.setRowCount(0);
         modeloSimbolos.setRowCount(0);
+        estructura = null;
+    }
+
+    /**
+     * Descartar la estructura analizada cuando se edita el código, porque sus
+     * posiciones dejan de ser válidas
+     */
+    private void vigilarCambios(Document documento) {
+        documento.addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                estructura = null;
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                estructura = null;
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                // Los cambios de atributos no mueven el texto
+            }
+        });
+    }
+
+    /**
+     * Mover el cursor a la pareja del corchete que está junto a él, usando la
+     * estructura del último análisis Java
+     */
+    private void irAPareja() {
+        if (estructura == null) {
+            lblEstado.setText("Analice el código Java para saltar entre llaves");
+            return;
+        }
+
+        int cursor = txtCodigo.getCaretPosition();
+        int pareja = estructura.pareja(cursor);
+        if (pareja < 0 && cursor > 0) {
+            pareja = estructura.pareja(cursor - 1);
+        }
+        if (pareja < 0) {
+            lblEstado.setText("No hay un corchete con pareja junto al cursor");
+            return;
+        }
+        txtCodigo.setCaretPosition(pareja);
+        txtCodigo.requestFocusInWindow();
+    }
+
+    /**
+     * Mostrar las clases y métodos del último código Java analizado. Un doble
+     * clic en una fila lleva el cursor a la declaración.
+     */
+    private void mostrarEsquema() {
+        final IndiceEstructural indiceEstructural = estructura;
+        if (indiceEstructural == null) {
+            lblEstado.setText("Error: Analice el código Java para ver su esquema");
+            return;
+        }
+
+        DefaultTableModel modeloEsquema = new DefaultTableModel(new String[] { "NOMBRE", "TIPO", "LÍNEA" }, 0) {
+            @Override
+            public boolean isCellEditable(int fila, int columna) {
+                return false;
+            }
+        };
+        for (Object[] fila : indiceEstructural.esquema()) {
+            modeloEsquema.addRow(fila);
+        }
+
+        final JTable tblEsquema = new JTable(modeloEsquema);
+        tblEsquema.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int fila = tblEsquema.getSelectedRow();
+                if (e.getClickCount() == 2 && fila >= 0 && indiceEstructural == estructura) {
+                    txtCodigo.setCaretPosition(indiceEstructural.inicioDeclaracion(fila));
+                    txtCodigo.requestFocusInWindow();
+                }
+            }
+        });
+        JScrollPane scrollEsquema = new JScrollPane(tblEsquema);
+        scrollEsquema.setPreferredSize(new Dimension(500, 400));
+
+        lblEstado.setText(indiceEstructural.getDeclaraciones() + " declaraciones");
+        JDialog dialogo = new JDialog(this, "Esquema", false);
+        dialogo.setContentPane(scrollEsquema);
+        dialogo.pack();
+        dialogo.setLocationRelativeTo(this);
+        dialogo.setVisible(true);
     }
 
     /**
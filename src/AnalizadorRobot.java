@@ -1,4 +1,6 @@
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -47,6 +49,7 @@ public class AnalizadorRobot {
         private String valor;
         private int linea;
         private int columna;
+        private int simbolo = -1;
 
         public Token(TipoToken tipo, String lexema, int linea, int columna) {
             this.tipo = tipo;
@@ -64,6 +67,11 @@ public class AnalizadorRobot {
             this.columna = columna;
         }
 
+        public Token(TipoToken tipo, String lexema, int linea, int columna, int simbolo) {
+            this(tipo, lexema, linea, columna);
+            this.simbolo = simbolo;
+        }
+
         public TipoToken getTipo() {
             return tipo;
         }
@@ -84,6 +92,14 @@ public class AnalizadorRobot {
             return columna;
         }
 
+        /**
+         * Número del identificador en el pool de símbolos usado en el análisis, o
+         * -1 si el token no es un identificador o no se usó un pool
+         */
+        public int getSimbolo() {
+            return simbolo;
+        }
+
         @Override
         public String toString() {
             return String.format("%-15s %-15s %-15s %-5d %-5d",
@@ -91,6 +107,153 @@ public class AnalizadorRobot {
         }
     }
 
+    /**
+     * Campos del Token que se pueden pedir al analizar con filtro. Los que no
+     * se piden quedan en null (el lexema) o en 0 (línea y columna).
+     */
+    public enum Campo {
+        LEXEMA,
+        LINEA,
+        COLUMNA
+    }
+
+    // Máscara que acepta todos los tipos, un bit por TipoToken
+    private static final int TODOS = -1;
+    private static final int METODOS = (1 << TipoToken.ACCION.ordinal()) | (1 << TipoToken.METODO.ordinal());
+
+    /**
+     * Receptor de tokens para el análisis en flujo. El analizador lo notifica en
+     * cuanto reconoce cada token, indicando su rango dentro del código fuente.
+     */
+    public interface ReceptorTokens {
+        /**
+         * @param tipo    Tipo del token reconocido
+         * @param codigo  Código fuente que se está analizando
+         * @param inicio  Posición del primer carácter del token
+         * @param fin     Posición siguiente al último carácter del token
+         * @param linea   Línea donde empieza el token
+         * @param columna Columna donde empieza el token
+         */
+        void token(TipoToken tipo, CharSequence codigo, int inicio, int fin, int linea, int columna);
+    }
+
+    // Estado de una instancia reutilizable: los tokens del último código
+    // analizado, en arreglos que se conservan entre llamadas
+    private CharSequence codigo = "";
+    private TipoToken[] tipos;
+    private int[] inicios;
+    private int[] fines;
+    private int[] lineas;
+    private int[] columnas;
+    private int cantidad;
+    private int filtro = TODOS;
+    private final ReceptorTokens registrador = this::registrar;
+
+    /**
+     * Crea un analizador reutilizable con capacidad inicial para 256 tokens
+     */
+    public AnalizadorRobot() {
+        this(256);
+    }
+
+    /**
+     * Crea un analizador reutilizable. Una instancia no es segura para usarse
+     * desde varios hilos a la vez; se usa una por hilo o desde un pool.
+     *
+     * @param capacidad Cantidad de tokens que caben sin agrandar los buffers
+     */
+    public AnalizadorRobot(int capacidad) {
+        capacidad = Math.max(1, capacidad);
+        tipos = new TipoToken[capacidad];
+        inicios = new int[capacidad];
+        fines = new int[capacidad];
+        lineas = new int[capacidad];
+        columnas = new int[capacidad];
+    }
+
+    /**
+     * Limita los tipos de token que guardan las siguientes llamadas a reset.
+     * Los demás se descartan dentro del analizador.
+     */
+    public void setFiltro(EnumSet<TipoToken> tipos) {
+        filtro = mascara(tipos);
+    }
+
+    /**
+     * Analiza un nuevo código guardando sus tokens en los buffers de la
+     * instancia. Los buffers sólo crecen cuando el código tiene más tokens que
+     * todos los anteriores, así que una instancia reutilizada no asigna memoria
+     * por llamada. Los resultados del código anterior se descartan.
+     *
+     * @param codigo Código fuente a analizar
+     * @return Cantidad de tokens encontrados
+     */
+    public int reset(CharSequence codigo) {
+        this.codigo = codigo;
+        cantidad = 0;
+        escanear(codigo, filtro, registrador);
+        return cantidad;
+    }
+
+    private void registrar(TipoToken tipo, CharSequence fuente, int inicio, int fin, int linea, int columna) {
+        if (cantidad == tipos.length) {
+            int capacidad = cantidad + (cantidad >> 1) + 1;
+            tipos = Arrays.copyOf(tipos, capacidad);
+            inicios = Arrays.copyOf(inicios, capacidad);
+            fines = Arrays.copyOf(fines, capacidad);
+            lineas = Arrays.copyOf(lineas, capacidad);
+            columnas = Arrays.copyOf(columnas, capacidad);
+        }
+
+        tipos[cantidad] = tipo;
+        inicios[cantidad] = inicio;
+        fines[cantidad] = fin;
+        lineas[cantidad] = linea;
+        columnas[cantidad] = columna;
+        cantidad++;
+    }
+
+    /**
+     * Cantidad de tokens del último código analizado
+     */
+    public int getCantidad() {
+        return cantidad;
+    }
+
+    /**
+     * Último código analizado
+     */
+    public CharSequence getCodigo() {
+        return codigo;
+    }
+
+    public TipoToken tipo(int token) {
+        return tipos[token];
+    }
+
+    public int inicio(int token) {
+        return inicios[token];
+    }
+
+    public int fin(int token) {
+        return fines[token];
+    }
+
+    public int linea(int token) {
+        return lineas[token];
+    }
+
+    public int columna(int token) {
+        return columnas[token];
+    }
+
+    /**
+     * Construye el lexema de un token; es la única operación que asigna memoria
+     */
+    public String lexema(int token) {
+        return lexema(tipos[token], codigo, inicios[token], fines[token]);
+    }
+
     /**
      * Analiza el código y devuelve una lista de tokens
      *
@@ -98,121 +261,285 @@ public class AnalizadorRobot {
      * @return Lista de tokens encontrados
      */
     public static List<Token> analizar(String codigo) {
-        List<Token> tokens = new ArrayList<>();
+        // Los comandos de robot tienen un token cada 3 caracteres o menos; así la
+        // lista casi nunca se copia al crecer
+        final List<Token> tokens = new ArrayList<>(codigo.length() / 3 + 16);
+
+        analizar(codigo, (tipo, fuente, inicio, fin, linea, columna) -> {
+            String lexema = lexema(tipo, fuente, inicio, fin);
+            if (tipo == TipoToken.NUMERO) {
+                tokens.add(new Token(tipo, lexema, lexema, linea, columna));
+            } else {
+                tokens.add(new Token(tipo, lexema, linea, columna));
+            }
+        });
+
+        return tokens;
+    }
+
+    /**
+     * Analiza el código internando los identificadores en el pool. Cada token
+     * IDENTIFICADOR lleva su número de símbolo y comparte el String del pool.
+     *
+     * @param codigo Código fuente a analizar
+     * @param pool   Pool donde se internan los identificadores
+     * @return Lista de tokens encontrados
+     */
+    public static List<Token> analizar(String codigo, final PoolSimbolos pool) {
+        final List<Token> tokens = new ArrayList<>(codigo.length() / 3 + 16);
+
+        analizar(codigo, (tipo, fuente, inicio, fin, linea, columna) -> {
+            if (tipo == TipoToken.IDENTIFICADOR) {
+                int simbolo = pool.internar(fuente, inicio, fin);
+                tokens.add(new Token(tipo, pool.nombre(simbolo), linea, columna, simbolo));
+            } else {
+                String lexema = lexema(tipo, fuente, inicio, fin);
+                tokens.add(tipo == TipoToken.NUMERO ? new Token(tipo, lexema, lexema, linea, columna)
+                        : new Token(tipo, lexema, linea, columna));
+            }
+        });
 
-        // Dividir el código en líneas para mantener el seguimiento de línea/columna
-        String[] lineas = codigo.split("\\r?\\n");
+        return tokens;
+    }
+
+    /**
+     * Construye el lexema de un token notificado a un receptor. La palabra Robot
+     * se reporta siempre con la misma forma, sin importar mayúsculas.
+     */
+    public static String lexema(TipoToken tipo, CharSequence codigo, int inicio, int fin) {
+        if (tipo == TipoToken.PALABRA_R) {
+            return PALABRA_ROBOT;
+        }
+        return codigo.subSequence(inicio, fin).toString();
+    }
+
+    private static final String PALABRA_ROBOT = "Robot";
+
+    /**
+     * Analiza el código notificando cada token al receptor sin construir objetos
+     * intermedios. Las líneas terminan en \n o \r\n.
+     *
+     * @param codigo   Código fuente a analizar
+     * @param receptor Receptor que recibe los tokens en orden
+     */
+    public static void analizar(CharSequence codigo, ReceptorTokens receptor) {
+        escanear(codigo, TODOS, receptor);
+    }
+
+    /**
+     * Analiza el código devolviendo sólo los tokens de los tipos pedidos. Los
+     * demás se descartan dentro del analizador, antes de construir su lexema o
+     * su Token, y los campos que no se piden no se llenan.
+     *
+     * @param codigo Código fuente a analizar
+     * @param tipos  Tipos de token que se devuelven
+     * @param campos Campos que se llenan en cada Token
+     * @return Lista de tokens de los tipos pedidos
+     */
+    public static List<Token> analizar(String codigo, EnumSet<TipoToken> tipos, EnumSet<Campo> campos) {
+        final List<Token> tokens = new ArrayList<>();
+        final boolean conLexema = campos.contains(Campo.LEXEMA);
+        final boolean conLinea = campos.contains(Campo.LINEA);
+        final boolean conColumna = campos.contains(Campo.COLUMNA);
+
+        escanear(codigo, mascara(tipos), (tipo, fuente, inicio, fin, linea, columna) -> {
+            String lexema = conLexema ? lexema(tipo, fuente, inicio, fin) : null;
+            int lineaToken = conLinea ? linea : 0;
+            int columnaToken = conColumna ? columna : 0;
+            tokens.add(tipo == TipoToken.NUMERO && lexema != null
+                    ? new Token(tipo, lexema, lexema, lineaToken, columnaToken)
+                    : new Token(tipo, lexema, lineaToken, columnaToken));
+        });
+
+        return tokens;
+    }
+
+    /**
+     * Analiza el código notificando al receptor sólo los tokens de los tipos
+     * pedidos
+     *
+     * @param codigo   Código fuente a analizar
+     * @param tipos    Tipos de token que se notifican
+     * @param receptor Receptor que recibe los tokens en orden
+     */
+    public static void analizar(CharSequence codigo, EnumSet<TipoToken> tipos, ReceptorTokens receptor) {
+        escanear(codigo, mascara(tipos), receptor);
+    }
+
+    /**
+     * Convierte un conjunto de tipos en una máscara con un bit por tipo
+     */
+    private static int mascara(EnumSet<TipoToken> tipos) {
+        int mascara = 0;
+        for (TipoToken tipo : tipos) {
+            mascara |= 1 << tipo.ordinal();
+        }
+        return mascara;
+    }
+
+    private static boolean acepta(int filtro, TipoToken tipo) {
+        return (filtro & (1 << tipo.ordinal())) != 0;
+    }
+
+    /**
+     * Recorre el código notificando los tokens aceptados por el filtro
+     */
+    private static void escanear(CharSequence codigo, int filtro, ReceptorTokens receptor) {
+        int longitud = codigo.length();
+        int posicion = 0;
+        int inicioLinea = 0;
+        int numLinea = 1;
+
+        while (posicion < longitud) {
+            char c = codigo.charAt(posicion);
+
+            // Salto de línea
+            if (c == '\n') {
+                numLinea++;
+                posicion++;
+                inicioLinea = posicion;
+                continue;
+            }
 
-        for (int numLinea = 0; numLinea < lineas.length; numLinea++) {
-            String linea = lineas[numLinea];
+            // Omitir espacios en blanco
+            if (Character.isWhitespace(c)) {
+                posicion++;
+                continue;
+            }
 
-            // Inicializar la posición de la columna
-            int columna = 0;
+            // Identificador para Robot
+            if (posicion == inicioLinea && esPalabraRobot(codigo, posicion)) {
+                if (acepta(filtro, TipoToken.PALABRA_R)) {
+                    receptor.token(TipoToken.PALABRA_R, codigo, posicion, posicion + 5, numLinea, 1);
+                }
+                posicion += 5;
+                continue;
+            }
 
-            // Procesar cada token en la línea
-            while (columna < linea.length()) {
-                // Omitir espacios en blanco
-                if (Character.isWhitespace(linea.charAt(columna))) {
-                    columna++;
-                    continue;
+            // Identificador (r1, etc.)
+            if (Character.isLetter(c) || c == '_') {
+                int inicio = posicion;
+                while (posicion < longitud && esParteIdentificador(codigo.charAt(posicion))) {
+                    posicion++;
                 }
+                if (acepta(filtro, TipoToken.IDENTIFICADOR)) {
+                    receptor.token(TipoToken.IDENTIFICADOR, codigo, inicio, posicion, numLinea,
+                            inicio - inicioLinea + 1);
+                }
+                continue;
+            }
 
-                // Identificador para Robot
-                if (columna == 0 && linea.length() >= 5 && linea.substring(0, 5).equalsIgnoreCase("Robot")) {
-                    tokens.add(new Token(TipoToken.PALABRA_R, "Robot", numLinea + 1, columna + 1));
-                    columna += 5;
-                    continue;
+            // Punto (separador para métodos)
+            if (c == '.') {
+                if (acepta(filtro, TipoToken.PUNTO)) {
+                    receptor.token(TipoToken.PUNTO, codigo, posicion, posicion + 1, numLinea,
+                            posicion - inicioLinea + 1);
                 }
+                posicion++;
 
-                // Identificador (r1, etc.)
-                if (Character.isLetter(linea.charAt(columna)) || linea.charAt(columna) == '_') {
-                    int inicio = columna;
-                    while (columna < linea.length()
-                            && (Character.isLetterOrDigit(linea.charAt(columna)) || linea.charAt(columna) == '_')) {
-                        columna++;
+                // Después del punto viene un método o acción
+                if (posicion < longitud && Character.isLetter(codigo.charAt(posicion))) {
+                    int inicio = posicion;
+                    while (posicion < longitud && esParteIdentificador(codigo.charAt(posicion))) {
+                        posicion++;
                     }
-                    String lexema = linea.substring(inicio, columna);
-                    tokens.add(new Token(TipoToken.IDENTIFICADOR, lexema, numLinea + 1, inicio + 1));
-                    continue;
-                }
 
-                // Punto (separador para métodos)
-                if (linea.charAt(columna) == '.') {
-                    tokens.add(new Token(TipoToken.PUNTO, ".", numLinea + 1, columna + 1));
-                    columna++;
-
-                    // Después del punto viene un método o acción
-                    if (columna < linea.length() && Character.isLetter(linea.charAt(columna))) {
-                        int inicio = columna;
-                        while (columna < linea.length() &&
-                                (Character.isLetterOrDigit(linea.charAt(columna)) || linea.charAt(columna) == '_')) {
-                            columna++;
-                        }
-                        String metodo = linea.substring(inicio, columna);
-
-                        // Determinar si es una acción o un método
-                        if (metodo.equals("iniciar") || metodo.equals("finalizar") || metodo.equals("cerrarGarra")
-                                || metodo.equals("abrirGarra")) {
-                            tokens.add(new Token(TipoToken.ACCION, metodo, numLinea + 1, inicio + 1));
-                        } else {
-                            tokens.add(new Token(TipoToken.METODO, metodo, numLinea + 1, inicio + 1));
+                    // Determinar si es una acción o un método, salvo que se descarten ambos
+                    if ((filtro & METODOS) != 0) {
+                        TipoToken tipo = esAccion(codigo, inicio, posicion) ? TipoToken.ACCION : TipoToken.METODO;
+                        if (acepta(filtro, tipo)) {
+                            receptor.token(tipo, codigo, inicio, posicion, numLinea, inicio - inicioLinea + 1);
                         }
                     }
-                    continue;
                 }
+                continue;
+            }
 
-                // Paréntesis
-                if (linea.charAt(columna) == '(') {
-                    tokens.add(new Token(TipoToken.PARENTESIS_IZQ, "(", numLinea + 1, columna + 1));
-                    columna++;
-                    continue;
+            // Paréntesis, llaves e igual
+            TipoToken simbolo = tipoSimbolo(c);
+            if (simbolo != null) {
+                if (acepta(filtro, simbolo)) {
+                    receptor.token(simbolo, codigo, posicion, posicion + 1, numLinea, posicion - inicioLinea + 1);
                 }
+                posicion++;
+                continue;
+            }
 
-                if (linea.charAt(columna) == ')') {
-                    tokens.add(new Token(TipoToken.PARENTESIS_DER, ")", numLinea + 1, columna + 1));
-                    columna++;
-                    continue;
+            // Número
+            if (Character.isDigit(c)) {
+                int inicio = posicion;
+                while (posicion < longitud && Character.isDigit(codigo.charAt(posicion))) {
+                    posicion++;
                 }
-
-                // Llaves
-                if (linea.charAt(columna) == '{') {
-                    tokens.add(new Token(TipoToken.LLAVE_IZQ, "{", numLinea + 1, columna + 1));
-                    columna++;
-                    continue;
+                if (acepta(filtro, TipoToken.NUMERO)) {
+                    receptor.token(TipoToken.NUMERO, codigo, inicio, posicion, numLinea, inicio - inicioLinea + 1);
                 }
+                continue;
+            }
 
-                if (linea.charAt(columna) == '}') {
-                    tokens.add(new Token(TipoToken.LLAVE_DER, "}", numLinea + 1, columna + 1));
-                    columna++;
-                    continue;
-                }
+            // Si no coincide con ninguno de los patrones anteriores
+            if (acepta(filtro, TipoToken.DESCONOCIDO)) {
+                receptor.token(TipoToken.DESCONOCIDO, codigo, posicion, posicion + 1, numLinea,
+                        posicion - inicioLinea + 1);
+            }
+            posicion++;
+        }
+    }
 
-                // Igual
-                if (linea.charAt(columna) == '=') {
-                    tokens.add(new Token(TipoToken.IGUAL, "=", numLinea + 1, columna + 1));
-                    columna++;
-                    continue;
-                }
+    /**
+     * Verifica si en la posición empieza la palabra Robot, sin importar
+     * mayúsculas
+     */
+    private static boolean esPalabraRobot(CharSequence codigo, int posicion) {
+        if (posicion + PALABRA_ROBOT.length() > codigo.length()) {
+            return false;
+        }
+        for (int i = 0; i < PALABRA_ROBOT.length(); i++) {
+            if (Character.toLowerCase(codigo.charAt(posicion + i)) != Character
+                    .toLowerCase(PALABRA_ROBOT.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-                // Número
-                if (Character.isDigit(linea.charAt(columna))) {
-                    int inicio = columna;
-                    while (columna < linea.length() && Character.isDigit(linea.charAt(columna))) {
-                        columna++;
-                    }
-                    String numero = linea.substring(inicio, columna);
-                    tokens.add(new Token(TipoToken.NUMERO, numero, numero, numLinea + 1, inicio + 1));
-                    continue;
-                }
+    private static boolean esParteIdentificador(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
 
-                // Si no coincide con ninguno de los patrones anteriores
-                tokens.add(new Token(TipoToken.DESCONOCIDO, String.valueOf(linea.charAt(columna)), numLinea + 1,
-                        columna + 1));
-                columna++;
+    /**
+     * Verifica si el rango corresponde a una acción (iniciar, finalizar,
+     * cerrarGarra, abrirGarra)
+     */
+    static boolean esAccion(CharSequence codigo, int inicio, int fin) {
+        for (String accion : ACCIONES) {
+            if (AnalizadorJava.rangoIgual(accion, codigo, inicio, fin)) {
+                return true;
             }
         }
+        return false;
+    }
 
-        return tokens;
+    private static final String[] ACCIONES = { "iniciar", "finalizar", "cerrarGarra", "abrirGarra" };
+
+    /**
+     * Devuelve el tipo de un símbolo de un carácter o null si no lo es
+     */
+    private static TipoToken tipoSimbolo(char c) {
+        switch (c) {
+            case '(':
+                return TipoToken.PARENTESIS_IZQ;
+            case ')':
+                return TipoToken.PARENTESIS_DER;
+            case '{':
+                return TipoToken.LLAVE_IZQ;
+            case '}':
+                return TipoToken.LLAVE_DER;
+            case '=':
+                return TipoToken.IGUAL;
+            default:
+                return null;
+        }
     }
 
     /**
@@ -0,0 +1,157 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Despachador de programas con varios robots. Separa los comandos de un
+ * ProgramaRobot en una cola por robot, conservando el orden de cada uno, y
+ * entrega las colas en paralelo a un controlador por robot, para que los
+ * brazos de una celda no esperen a que se ejecuten los comandos de los demás.
+ *
+ * Cada cola se procesa completa en una sola tarea, por lo que un controlador
+ * recibe sus comandos en orden y siempre desde un mismo hilo.
+ */
+public class DespachadorRobots {
+
+    /**
+     * Controlador de un robot: un hilo local, un brazo real o un simulador
+     */
+    public interface Controlador {
+        /**
+         * Ejecuta un comando del robot
+         *
+         * @param programa Programa al que pertenece el comando
+         * @param comando  Número del comando en el programa
+         */
+        void ejecutar(ProgramaRobot programa, int comando) throws Exception;
+
+        /**
+         * Se llama después del último comando del robot
+         */
+        default void terminar(ProgramaRobot programa) throws Exception {
+        }
+    }
+
+    /**
+     * Separa los comandos por robot
+     *
+     * @param programa Programa a separar
+     * @return Para cada robot (por su número en programa.robots()), los
+     *         números de sus comandos en orden
+     */
+    public static int[][] particionar(ProgramaRobot programa) {
+        int robots = programa.robots().tamano();
+
+        // Primera pasada: contar para crear cada cola con su tamaño exacto
+        int[] cantidades = new int[robots];
+        for (int comando = 0; comando < programa.tamano(); comando++) {
+            cantidades[programa.robot(comando)]++;
+        }
+
+        int[][] colas = new int[robots][];
+        for (int robot = 0; robot < robots; robot++) {
+            colas[robot] = new int[cantidades[robot]];
+            cantidades[robot] = 0;
+        }
+        for (int comando = 0; comando < programa.tamano(); comando++) {
+            int robot = programa.robot(comando);
+            colas[robot][cantidades[robot]++] = comando;
+        }
+        return colas;
+    }
+
+    /**
+     * Ejecuta las colas de todos los robots en paralelo y espera a que
+     * terminen
+     *
+     * @param programa Programa a ejecutar
+     * @param fabrica  Crea el controlador de cada robot a partir de su nombre
+     * @param hilos    Cantidad máxima de hilos de trabajo
+     */
+    public static void despachar(final ProgramaRobot programa, Function<String, ? extends Controlador> fabrica,
+            int hilos) throws Exception {
+        int[][] colas = particionar(programa);
+        if (colas.length == 0) {
+            return;
+        }
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(Math.max(1, Math.min(hilos, colas.length)));
+        List<Future<?>> tareas = new ArrayList<>();
+
+        try {
+            for (int robot = 0; robot < colas.length; robot++) {
+                final int[] cola = colas[robot];
+                final Controlador controlador = fabrica.apply(programa.robots().nombre(robot));
+
+                tareas.add(ejecutor.submit(() -> {
+                    for (int comando : cola) {
+                        controlador.ejecutar(programa, comando);
+                    }
+                    controlador.terminar(programa);
+                    return null;
+                }));
+            }
+
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        } finally {
+            ejecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Simula cada robot del programa en paralelo con su propio simulador
+     *
+     * @param programa Programa a simular
+     * @param hilos    Cantidad máxima de hilos de trabajo
+     * @return Resultado de cada robot, por su número en programa.robots()
+     */
+    public static SimuladorRobot.Resultado[] simularPorRobot(ProgramaRobot programa, int hilos) throws Exception {
+        final SimuladorRobot.Resultado[] resultados = new SimuladorRobot.Resultado[programa.robots().tamano()];
+
+        despachar(programa,
+                nombre -> new ControladorSimulado(programa, programa.robots().buscar(nombre), resultados), hilos);
+        return resultados;
+    }
+
+    /**
+     * Controlador que ejecuta los comandos en un SimuladorRobot
+     */
+    private static class ControladorSimulado implements Controlador {
+        private final SimuladorRobot simulador = new SimuladorRobot();
+        private final SimuladorRobot.Resultado[] resultados;
+        private final int robot;
+        private List<String> violaciones;
+        private int comandos;
+
+        ControladorSimulado(ProgramaRobot programa, int robot, SimuladorRobot.Resultado[] resultados) {
+            this.robot = robot;
+            this.resultados = resultados;
+            simulador.reiniciar(programa.robots().tamano());
+        }
+
+        @Override
+        public void ejecutar(ProgramaRobot programa, int comando) {
+            violaciones = simulador.ejecutar(programa, comando, violaciones);
+            comandos++;
+        }
+
+        @Override
+        public void terminar(ProgramaRobot programa) {
+            violaciones = simulador.terminar(programa, violaciones);
+            resultados[robot] = new SimuladorRobot.Resultado(comandos,
+                    violaciones == null ? Collections.<String>emptyList() : violaciones);
+        }
+    }
+}
@@ -0,0 +1,624 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Detector de código copiado entre los archivos Java de un corpus.
+ *
+ * Los tokens se normalizan para que un fragmento copiado y renombrado siga
+ * siendo igual: los identificadores y los literales se reducen a su tipo, los
+ * comentarios se descartan y el resto se compara por su lexema. Cada ventana
+ * de tokensMinimos tokens normalizados tiene un hash rodante, y de cada grupo
+ * de ventana hashes consecutivos se conserva sólo el menor (winnowing). Así
+ * todo fragmento común de al menos tokensMinimos + ventana - 1 tokens comparte
+ * alguna huella, y se guardan unas 2 / (ventana + 1) huellas por token.
+ *
+ * Los archivos se analizan en paralelo, de a uno por hilo y sin conservar su
+ * texto ni sus tokens, así que la memoria depende de la cantidad de huellas y
+ * no del tamaño del corpus. Las huellas se guardan en arreglos primitivos y se
+ * relacionan a través de un índice compartido por hash; las huellas que se
+ * repiten en más de MAXIMO_GRUPO lugares se consideran código repetitivo y no
+ * se comparan, lo que también acota los pares que abre cada huella.
+ *
+ * Una huella en común sólo asegura tokensMinimos tokens iguales, así que cada
+ * clon candidato se mide volviendo a analizar sus dos archivos y extendiendo
+ * la coincidencia hacia atrás y hacia adelante; los que no llegan al largo
+ * mínimo pedido se descartan antes de guardarse.
+ */
+public class DetectorClones {
+
+    /**
+     * Tokens normalizados que cubre cada huella
+     */
+    public static final int TOKENS_MINIMOS = 40;
+
+    /**
+     * Huellas consecutivas entre las que se elige una
+     */
+    public static final int VENTANA = 30;
+
+    /**
+     * Apariciones a partir de las cuales una huella se ignora
+     */
+    public static final int MAXIMO_GRUPO = 16;
+
+    private static final long MULTIPLICADOR = 0x9E3779B97F4A7C15L;
+
+    private final List<Path> rutas;
+    private final int tokensMinimos;
+    private final int ventana;
+    private final int minimo;
+    private long tokens;
+
+    // Huellas de todos los archivos, agrupadas por archivo en el orden de rutas
+    private long[] hashes;
+    private int[] posiciones;
+    private int huellas;
+    private int[] inicioArchivo;
+
+    // Índice por hash: primera huella de cada hash, siguiente huella con el
+    // mismo hash y cantidad de huellas de cada casilla
+    private int[] casillas;
+    private int[] grupos;
+    private int[] siguientes;
+
+    private final List<Clon> clones = new ArrayList<>();
+
+    private DetectorClones(List<Path> rutas, int tokensMinimos, int ventana, int minimo) {
+        this.rutas = rutas;
+        this.tokensMinimos = tokensMinimos;
+        this.ventana = ventana;
+        this.minimo = minimo;
+    }
+
+    /**
+     * Busca código copiado en archivos Java con los parámetros por defecto
+     */
+    public static DetectorClones detectarEnParalelo(List<Path> rutas, int hilos)
+            throws IOException, InterruptedException {
+        return detectarEnParalelo(rutas, TOKENS_MINIMOS, VENTANA, TOKENS_MINIMOS + VENTANA - 1, hilos);
+    }
+
+    /**
+     * Busca código copiado en archivos Java
+     *
+     * @param rutas         Archivos a comparar
+     * @param tokensMinimos Tokens normalizados que cubre cada huella
+     * @param ventana       Huellas consecutivas entre las que se elige una
+     * @param minimo        Largo en tokens normalizados desde el cual se
+     *                      reporta un clon; con tokensMinimos + ventana - 1 o
+     *                      más se encuentran todos los de ese largo
+     * @param hilos         Cantidad de hilos de trabajo
+     * @return Detector con los clones encontrados
+     */
+    public static DetectorClones detectarEnParalelo(final List<Path> rutas, final int tokensMinimos,
+            final int ventana, int minimo, int hilos) throws IOException, InterruptedException {
+        if (tokensMinimos <= 0 || ventana <= 0) {
+            throw new IllegalArgumentException("Los tokens mínimos y la ventana deben ser positivos");
+        }
+        if (hilos <= 0) {
+            throw new IllegalArgumentException("La cantidad de hilos debe ser positiva: " + hilos);
+        }
+
+        final DetectorClones detector = new DetectorClones(rutas, tokensMinimos, ventana, minimo);
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        try {
+            // Huellas de cada archivo
+            final AtomicInteger siguiente = new AtomicInteger();
+            List<Future<Huellas>> parciales = new ArrayList<>();
+            for (int i = 0; i < hilos; i++) {
+                parciales.add(ejecutor.submit(() -> {
+                    Huellas parcial = new Huellas(tokensMinimos, ventana);
+                    for (int j = siguiente.getAndIncrement(); j < rutas.size(); j = siguiente.getAndIncrement()) {
+                        parcial.agregar(j, TextoMapeado.leer(rutas.get(j)));
+                    }
+                    return parcial;
+                }));
+            }
+            List<Huellas> huellas = new ArrayList<>();
+            for (Future<Huellas> parcial : parciales) {
+                huellas.add(parcial.get());
+            }
+            detector.unir(huellas);
+            detector.indexar();
+
+            // Comparación de las huellas de cada archivo con el índice
+            siguiente.set(0);
+            List<Future<List<Clon>>> busquedas = new ArrayList<>();
+            for (int i = 0; i < hilos; i++) {
+                busquedas.add(ejecutor.submit(() -> {
+                    List<Clon> encontrados = new ArrayList<>();
+                    for (int j = siguiente.getAndIncrement(); j < rutas.size(); j = siguiente.getAndIncrement()) {
+                        detector.buscar(j, encontrados);
+                    }
+                    return encontrados;
+                }));
+            }
+            for (Future<List<Clon>> busqueda : busquedas) {
+                detector.clones.addAll(busqueda.get());
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            ejecutor.shutdownNow();
+        }
+
+        detector.clones.sort(Comparator.comparingInt((Clon clon) -> clon.archivoA)
+                .thenComparingInt(clon -> clon.comienzoA)
+                .thenComparingInt(clon -> clon.archivoB)
+                .thenComparingInt(clon -> clon.comienzoB));
+        return detector;
+    }
+
+    /**
+     * Copia las huellas de los hilos a arreglos únicos, ordenadas por archivo
+     */
+    private void unir(List<Huellas> parciales) {
+        int[] cantidadArchivo = new int[rutas.size()];
+        for (Huellas parcial : parciales) {
+            tokens += parcial.tokens;
+            huellas += parcial.cantidad;
+            for (int i = 0; i < parcial.archivos; i++) {
+                cantidadArchivo[parcial.archivo[i]] = parcial.cantidadArchivo[i];
+            }
+        }
+
+        inicioArchivo = new int[rutas.size() + 1];
+        for (int i = 0; i < rutas.size(); i++) {
+            inicioArchivo[i + 1] = inicioArchivo[i] + cantidadArchivo[i];
+        }
+
+        hashes = new long[huellas];
+        posiciones = new int[huellas];
+        for (Huellas parcial : parciales) {
+            for (int i = 0; i < parcial.archivos; i++) {
+                int desde = parcial.inicioArchivo[i];
+                int hacia = inicioArchivo[parcial.archivo[i]];
+                int cantidad = parcial.cantidadArchivo[i];
+                System.arraycopy(parcial.hashes, desde, hashes, hacia, cantidad);
+                System.arraycopy(parcial.posiciones, desde, posiciones, hacia, cantidad);
+            }
+        }
+    }
+
+    /**
+     * Encadena las huellas con el mismo hash
+     */
+    private void indexar() {
+        casillas = new int[Integer.highestOneBit(Math.max(huellas, 8) * 2 - 1) * 2];
+        grupos = new int[casillas.length];
+        siguientes = new int[huellas];
+        int mascara = casillas.length - 1;
+
+        // De atrás hacia adelante para que cada cadena quede en orden
+        for (int huella = huellas - 1; huella >= 0; huella--) {
+            int casilla = casilla(hashes[huella], mascara);
+            siguientes[huella] = casillas[casilla] - 1;
+            casillas[casilla] = huella + 1;
+            grupos[casilla]++;
+        }
+    }
+
+    private int casilla(long hash, int mascara) {
+        int i = (int) (hash ^ (hash >>> 32)) & mascara;
+        while (casillas[i] != 0 && hashes[casillas[i] - 1] != hash) {
+            i = (i + 1) & mascara;
+        }
+        return i;
+    }
+
+    /**
+     * Compara las huellas de un archivo con las de los archivos siguientes y
+     * con las posteriores del mismo archivo, uniendo las coincidencias
+     * cercanas en un solo clon, y guarda los que alcanzan el largo mínimo
+     */
+    private void buscar(int archivo, List<Clon> encontrados) throws IOException {
+        List<Clon> candidatos = new ArrayList<>();
+        // Clones abiertos por archivo copiado; puede haber varios con el mismo
+        // archivo cuando el fragmento aparece copiado más de una vez
+        Map<Integer, List<Clon>> abiertos = new HashMap<>();
+        int mascara = casillas.length - 1;
+        // Distancia máxima entre huellas consecutivas del mismo clon
+        int distancia = 2 * ventana;
+
+        for (int huella = inicioArchivo[archivo]; huella < inicioArchivo[archivo + 1]; huella++) {
+            int casilla = casilla(hashes[huella], mascara);
+            if (grupos[casilla] < 2 || grupos[casilla] > MAXIMO_GRUPO) {
+                continue;
+            }
+
+            int posicion = posiciones[huella];
+            for (int otra = casillas[casilla] - 1; otra >= 0; otra = siguientes[otra]) {
+                int otroArchivo = archivoDe(otra);
+                if (otroArchivo < archivo
+                        || (otroArchivo == archivo && posiciones[otra] < posicion + tokensMinimos)) {
+                    continue;
+                }
+
+                List<Clon> lista = abiertos.get(otroArchivo);
+                if (lista == null) {
+                    lista = new ArrayList<>();
+                    abiertos.put(otroArchivo, lista);
+                }
+                Clon continuado = null;
+                boolean cubierta = false;
+                for (Iterator<Clon> iterador = lista.iterator(); iterador.hasNext();) {
+                    Clon clon = iterador.next();
+                    if (posicion - clon.ultimaA > distancia) {
+                        candidatos.add(clon);
+                        iterador.remove();
+                    } else if (continuado == null && clon.ultimaHuellaA != huella
+                            && posiciones[otra] > clon.ultimaB && posiciones[otra] - clon.ultimaB <= distancia) {
+                        continuado = clon;
+                    } else if (clon.cubre(posicion, posiciones[otra])) {
+                        cubierta = true;
+                    }
+                }
+                if (continuado != null) {
+                    continuado.extender(huella, otra);
+                } else if (!cubierta) {
+                    // En el código periódico la misma región coincide consigo
+                    // misma con varios desfases; sólo se abre el primero
+                    lista.add(new Clon(archivo, huella, otroArchivo, otra));
+                }
+            }
+        }
+        for (List<Clon> lista : abiertos.values()) {
+            candidatos.addAll(lista);
+        }
+        if (!candidatos.isEmpty()) {
+            medir(archivo, candidatos, encontrados);
+        }
+    }
+
+    /**
+     * Extiende cada candidato de un archivo hasta donde sus tokens
+     * normalizados dejan de coincidir y guarda los que alcanzan el largo
+     * mínimo. Cada archivo copiado se analiza una sola vez.
+     */
+    private void medir(int archivo, List<Clon> candidatos, List<Clon> encontrados) throws IOException {
+        TokensNormalizados a = new TokensNormalizados(archivo, TextoMapeado.leer(rutas.get(archivo)));
+        TokensNormalizados b = null;
+        // Candidatos del mismo par que terminan extendidos al mismo clon
+        Set<Long> medidos = new HashSet<>();
+
+        candidatos.sort(Comparator.comparingInt((Clon clon) -> clon.archivoB));
+        for (Clon clon : candidatos) {
+            if (b == null || b.archivo != clon.archivoB) {
+                b = clon.archivoB == archivo ? a
+                        : new TokensNormalizados(clon.archivoB, TextoMapeado.leer(rutas.get(clon.archivoB)));
+                medidos.clear();
+            }
+            clon.medir(a, b);
+            if (clon.finA - clon.comienzoA >= minimo
+                    && medidos.add((long) clon.comienzoA << 32 | clon.comienzoB)) {
+                encontrados.add(clon);
+            }
+        }
+    }
+
+    /**
+     * Archivo de una huella, según los rangos de huellas de cada archivo
+     */
+    private int archivoDe(int huella) {
+        int archivo = Arrays.binarySearch(inicioArchivo, huella);
+        if (archivo < 0) {
+            return -archivo - 2;
+        }
+        // Los archivos sin huellas comparten el inicio con el siguiente
+        while (inicioArchivo[archivo + 1] == huella) {
+            archivo++;
+        }
+        return archivo;
+    }
+
+    public List<Path> getRutas() {
+        return rutas;
+    }
+
+    /**
+     * Tokens normalizados de todos los archivos
+     */
+    public long getTokens() {
+        return tokens;
+    }
+
+    public int getHuellas() {
+        return huellas;
+    }
+
+    public int getClones() {
+        return clones.size();
+    }
+
+    /**
+     * Clones en formato tabular
+     *
+     * @return Filas {archivo, líneas, archivo copiado, líneas copiadas, tokens}
+     */
+    public List<Object[]> paraTabla() {
+        List<Object[]> filas = new ArrayList<>(clones.size());
+        for (Clon clon : clones) {
+            filas.add(new Object[] {
+                    rutas.get(clon.archivoA).toString(),
+                    clon.lineaInicioA + "-" + clon.lineaFinA,
+                    rutas.get(clon.archivoB).toString(),
+                    clon.lineaInicioB + "-" + clon.lineaFinB,
+                    clon.finA - clon.comienzoA
+            });
+        }
+        return filas;
+    }
+
+    /**
+     * Par de fragmentos con huellas en común. Mientras se busca guarda la
+     * posición en tokens de la primera y la última huella de cada lado; al
+     * medirlo, el rango de tokens y de líneas donde los dos coinciden.
+     */
+    private final class Clon {
+        private final int archivoA;
+        private final int archivoB;
+        private final int inicioA;
+        private final int inicioB;
+        private int ultimaHuellaA;
+        private int ultimaA;
+        private int ultimaB;
+
+        private int comienzoA;
+        private int comienzoB;
+        private int finA;
+        private int lineaInicioA;
+        private int lineaFinA;
+        private int lineaInicioB;
+        private int lineaFinB;
+
+        Clon(int archivoA, int huellaA, int archivoB, int huellaB) {
+            this.archivoA = archivoA;
+            this.archivoB = archivoB;
+            inicioA = posiciones[huellaA];
+            inicioB = posiciones[huellaB];
+            extender(huellaA, huellaB);
+        }
+
+        void extender(int huellaA, int huellaB) {
+            ultimaHuellaA = huellaA;
+            ultimaA = posiciones[huellaA];
+            ultimaB = posiciones[huellaB];
+        }
+
+        /**
+         * Extiende el clon hacia atrás desde la primera huella y hacia
+         * adelante desde la última mientras los tokens normalizados coincidan
+         */
+        void medir(TokensNormalizados a, TokensNormalizados b) {
+            comienzoA = inicioA;
+            comienzoB = inicioB;
+            while (comienzoA > 0 && comienzoB > 0 && a.hashes[comienzoA - 1] == b.hashes[comienzoB - 1]) {
+                comienzoA--;
+                comienzoB--;
+            }
+            finA = Math.min(ultimaA + tokensMinimos, a.cantidad);
+            int finB = Math.min(ultimaB + tokensMinimos, b.cantidad);
+            while (finA < a.cantidad && finB < b.cantidad && a.hashes[finA] == b.hashes[finB]) {
+                finA++;
+                finB++;
+            }
+            lineaInicioA = a.lineas[comienzoA];
+            lineaFinA = a.lineas[finA - 1];
+            lineaInicioB = b.lineas[comienzoB];
+            lineaFinB = b.lineas[finB - 1];
+        }
+
+        /**
+         * Si un par de posiciones en tokens cae dentro de los dos fragmentos
+         */
+        boolean cubre(int posicionA, int posicionB) {
+            return posicionA >= inicioA && posicionA < ultimaA + tokensMinimos
+                    && posicionB >= inicioB && posicionB < ultimaB + tokensMinimos;
+        }
+    }
+
+    /**
+     * Hash y línea de cada token normalizado de un archivo, para medir sus
+     * clones
+     */
+    private static final class TokensNormalizados {
+        private final int archivo;
+        private long[] hashes = new long[1024];
+        private int[] lineas = new int[1024];
+        private int cantidad;
+
+        TokensNormalizados(int archivo, CharSequence codigo) {
+            this.archivo = archivo;
+            AnalizadorJava.analizar(codigo, (tipo, fuente, inicio, fin, linea, columna) -> {
+                if (tipo == AnalizadorJava.TipoToken.COMENTARIO) {
+                    return;
+                }
+                if (cantidad == hashes.length) {
+                    hashes = Arrays.copyOf(hashes, cantidad * 2);
+                    lineas = Arrays.copyOf(lineas, cantidad * 2);
+                }
+                hashes[cantidad] = Huellas.normalizar(tipo, fuente, inicio, fin);
+                lineas[cantidad] = linea;
+                cantidad++;
+            });
+        }
+    }
+
+    /**
+     * Huellas de los archivos que analiza un hilo. Para cada archivo guarda un
+     * rango contiguo de huellas en orden de posición.
+     */
+    private static final class Huellas {
+        private final int tokensMinimos;
+        private final int ventana;
+
+        private long[] hashes = new long[1024];
+        private int[] posiciones = new int[1024];
+        private int cantidad;
+        private long tokens;
+
+        private int[] archivo = new int[16];
+        private int[] inicioArchivo = new int[16];
+        private int[] cantidadArchivo = new int[16];
+        private int archivos;
+
+        // Últimos tokensMinimos tokens normalizados, en un arreglo circular
+        private final long[] ultimosHashes;
+        private final long potencia;
+        private long hashVentana;
+        private int posicion;
+
+        // Candidatas a huella de la ventana actual, de menor a mayor hash
+        private final long[] candidatosHash;
+        private final int[] candidatosPosicion;
+        private int primerCandidato;
+        private int candidatos;
+        private int ultimaElegida;
+
+        Huellas(int tokensMinimos, int ventana) {
+            this.tokensMinimos = tokensMinimos;
+            this.ventana = ventana;
+            ultimosHashes = new long[tokensMinimos];
+            long resultado = 1;
+            for (int i = 1; i < tokensMinimos; i++) {
+                resultado *= MULTIPLICADOR;
+            }
+            potencia = resultado;
+            candidatosHash = new long[ventana];
+            candidatosPosicion = new int[ventana];
+        }
+
+        /**
+         * Analiza un archivo y agrega sus huellas
+         */
+        void agregar(int numero, CharSequence codigo) {
+            if (archivos == archivo.length) {
+                archivo = Arrays.copyOf(archivo, archivos * 2);
+                inicioArchivo = Arrays.copyOf(inicioArchivo, archivos * 2);
+                cantidadArchivo = Arrays.copyOf(cantidadArchivo, archivos * 2);
+            }
+            archivo[archivos] = numero;
+            inicioArchivo[archivos] = cantidad;
+
+            hashVentana = 0;
+            posicion = 0;
+            primerCandidato = 0;
+            candidatos = 0;
+            ultimaElegida = -1;
+            AnalizadorJava.analizar(codigo, this::token);
+
+            // Un archivo con menos secuencias que la ventana conserva su menor hash
+            int secuencias = posicion - tokensMinimos + 1;
+            if (secuencias > 0 && secuencias < ventana) {
+                elegir();
+            }
+            tokens += posicion;
+            cantidadArchivo[archivos] = cantidad - inicioArchivo[archivos];
+            archivos++;
+        }
+
+        private void token(AnalizadorJava.TipoToken tipo, CharSequence fuente, int inicio, int fin, int linea,
+                int columna) {
+            if (tipo == AnalizadorJava.TipoToken.COMENTARIO) {
+                return;
+            }
+
+            long hash = normalizar(tipo, fuente, inicio, fin);
+            int indice = posicion % tokensMinimos;
+            if (posicion >= tokensMinimos) {
+                hashVentana -= ultimosHashes[indice] * potencia;
+            }
+            hashVentana = hashVentana * MULTIPLICADOR + hash;
+            ultimosHashes[indice] = hash;
+            posicion++;
+
+            int secuencia = posicion - tokensMinimos;
+            if (secuencia < 0) {
+                return;
+            }
+            agregarCandidato(hashVentana, secuencia);
+            if (secuencia + 1 >= ventana) {
+                elegir();
+            }
+        }
+
+        /**
+         * Agrega una secuencia a la cola de candidatas, sacando las de hash
+         * mayor o igual (ya no pueden ser el mínimo) y la que quedó fuera de la
+         * ventana
+         */
+        private void agregarCandidato(long hash, int secuencia) {
+            while (candidatos > 0 && candidatosHash[(primerCandidato + candidatos - 1) % ventana] >= hash) {
+                candidatos--;
+            }
+            if (candidatos > 0 && candidatosPosicion[primerCandidato] <= secuencia - ventana) {
+                primerCandidato = (primerCandidato + 1) % ventana;
+                candidatos--;
+            }
+            int i = (primerCandidato + candidatos) % ventana;
+            candidatosHash[i] = hash;
+            candidatosPosicion[i] = secuencia;
+            candidatos++;
+        }
+
+        /**
+         * Guarda como huella el mínimo de la ventana si no se eligió antes
+         */
+        private void elegir() {
+            int i = primerCandidato;
+            if (candidatosPosicion[i] == ultimaElegida) {
+                return;
+            }
+            ultimaElegida = candidatosPosicion[i];
+
+            if (cantidad == hashes.length) {
+                int capacidad = cantidad + (cantidad >> 1);
+                hashes = Arrays.copyOf(hashes, capacidad);
+                posiciones = Arrays.copyOf(posiciones, capacidad);
+            }
+            hashes[cantidad] = candidatosHash[i];
+            posiciones[cantidad] = candidatosPosicion[i];
+            cantidad++;
+        }
+
+        /**
+         * Hash del token normalizado: los identificadores y los literales sólo
+         * por su tipo, el resto también por su lexema
+         */
+        private static long normalizar(AnalizadorJava.TipoToken tipo, CharSequence fuente, int inicio, int fin) {
+            long hash = (0xCBF29CE484222325L ^ tipo.ordinal()) * 0x100000001B3L;
+            switch (tipo) {
+                case IDENTIFICADOR:
+                case LITERAL_STRING:
+                case LITERAL_CHAR:
+                case LITERAL_NUM:
+                    break;
+                default:
+                    for (int i = inicio; i < fin; i++) {
+                        hash = (hash ^ fuente.charAt(i)) * 0x100000001B3L;
+                    }
+                    break;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xFF51AFD7ED558CCDL;
+            return hash ^ (hash >>> 33);
+        }
+    }
+}
@@ -0,0 +1,777 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Diferencia entre dos versiones de un código a nivel de tokens. Cada token
+ * se reduce a un hash de 64 bits de su tipo y su lexema, calculado sobre el
+ * código sin construir Strings, y las comparaciones se hacen entre esos
+ * hashes.
+ *
+ * Primero se descartan el prefijo y el sufijo comunes. Si lo que queda en el
+ * medio es grande, se buscan anclas: secuencias de GRAMA tokens que aparecen
+ * una sola vez en cada versión, ubicadas con un hash rodante, de las que se
+ * conserva la cadena más larga en el mismo orden en ambas versiones. Entre
+ * ancla y ancla, y en un medio pequeño, se aplica el algoritmo de Myers con un
+ * límite de ediciones y de pasos; lo que no se resuelve dentro del límite se
+ * reporta como reemplazado entero. Así el costo es casi lineal cuando los
+ * cambios son pocos, aunque el archivo sea muy grande.
+ */
+public class DiferenciaTokens {
+
+    // Tokens por secuencia al buscar anclas
+    private static final int GRAMA = 8;
+    // Sólo son candidatas a ancla las secuencias cuyo hash tiene en cero estos
+    // bits altos: una de cada 8, elegida igual en ambas versiones
+    private static final int BITS_MUESTREO = 3;
+    // Tamaño del medio hasta el cual se aplica Myers directamente
+    private static final int UMBRAL_ANCLAS = 4096;
+    // Límites de Myers: ediciones y pasos (ediciones por tamaño del tramo)
+    private static final int MAXIMO_EDICIONES = 1024;
+    private static final long MAXIMO_PASOS = 32L * 1024 * 1024;
+
+    // Ventanas en las que se busca dónde vuelven a coincidir las versiones
+    private static final int VENTANA_INICIAL = 64;
+    private static final int VENTANA_MAXIMA = 4096;
+
+    private static final long MULTIPLICADOR = 0x9E3779B97F4A7C15L;
+
+    // Movimientos de Myers
+    private static final int NINGUNO = 0;
+    private static final int BAJAR = 1;
+    private static final int AVANZAR = 2;
+
+    private final Secuencia anterior;
+    private final Secuencia nueva;
+
+    // Tramos iguales en orden: inicio en la versión anterior, en la nueva y largo
+    private int[] iguales = new int[48];
+    private int tramos;
+
+    // Cambios: rangos de tokens [inicio, fin) en cada versión
+    private int[] cambios;
+    private int cantidadCambios;
+
+    // Tabla reutilizada entre resincronizaciones; una casilla está ocupada si
+    // su marca es la generación actual
+    private long[] clavesVentana;
+    private int[] posicionesVentana;
+    private int[] marcasVentana;
+    private int generacion;
+
+    private DiferenciaTokens(Secuencia anterior, Secuencia nueva) {
+        this.anterior = anterior;
+        this.nueva = nueva;
+    }
+
+    /**
+     * Compara dos versiones de un código Java
+     */
+    public static DiferenciaTokens compararJava(CharSequence anterior, CharSequence nuevo) {
+        return comparar(Secuencia.java(anterior), Secuencia.java(nuevo));
+    }
+
+    /**
+     * Compara dos versiones de un programa de robot
+     */
+    public static DiferenciaTokens compararRobot(CharSequence anterior, CharSequence nuevo) {
+        return comparar(Secuencia.robot(anterior), Secuencia.robot(nuevo));
+    }
+
+    private static DiferenciaTokens comparar(Secuencia anterior, Secuencia nueva) {
+        DiferenciaTokens diferencia = new DiferenciaTokens(anterior, nueva);
+        diferencia.alinear();
+        diferencia.calcularCambios();
+        return diferencia;
+    }
+
+    private void alinear() {
+        long[] a = anterior.hashes;
+        long[] b = nueva.hashes;
+        int n = anterior.cantidad;
+        int m = nueva.cantidad;
+
+        int prefijo = 0;
+        while (prefijo < n && prefijo < m && a[prefijo] == b[prefijo]) {
+            prefijo++;
+        }
+        int sufijo = 0;
+        while (sufijo < n - prefijo && sufijo < m - prefijo && a[n - 1 - sufijo] == b[m - 1 - sufijo]) {
+            sufijo++;
+        }
+
+        igual(0, 0, prefijo);
+        if ((n - prefijo - sufijo) + (m - prefijo - sufijo) <= UMBRAL_ANCLAS) {
+            myers(prefijo, n - sufijo, prefijo, m - sufijo);
+        } else {
+            anclar(prefijo, n - sufijo, prefijo, m - sufijo);
+        }
+        igual(n - sufijo, m - sufijo, sufijo);
+    }
+
+    /**
+     * Alinea un tramo grande a través de las secuencias de GRAMA tokens que
+     * aparecen una sola vez en cada versión. Sólo se consideran las secuencias
+     * muestreadas, así que la tabla tiene el tamaño de esas y no del tramo.
+     */
+    private void anclar(int desdeA, int hastaA, int desdeB, int hastaB) {
+        int gramasA = hastaA - desdeA - GRAMA + 1;
+        int gramasB = hastaB - desdeB - GRAMA + 1;
+        if (gramasA <= 0 || gramasB <= 0) {
+            tramo(desdeA, hastaA, desdeB, hastaB);
+            return;
+        }
+
+        long[] a = anterior.hashes;
+        long[] b = nueva.hashes;
+        long potencia = potencia(GRAMA - 1);
+
+        int muestreadas = 0;
+        long hash = hashSecuencia(a, desdeA);
+        for (int i = 0; i < gramasA; i++) {
+            if (i > 0) {
+                hash = rodar(hash, a[desdeA + i - 1], a[desdeA + i + GRAMA - 1], potencia);
+            }
+            if (muestreada(hash)) {
+                muestreadas++;
+            }
+        }
+
+        // Tabla de hashes de secuencia: posición + 1 en cada versión, o -1 si se repite
+        int capacidad = Integer.highestOneBit(Math.max(muestreadas, 8) * 2 - 1) * 2;
+        long[] claves = new long[capacidad];
+        int[] enA = new int[capacidad];
+        int[] enB = new int[capacidad];
+        int mascara = capacidad - 1;
+
+        hash = hashSecuencia(a, desdeA);
+        for (int i = 0; i < gramasA; i++) {
+            if (i > 0) {
+                hash = rodar(hash, a[desdeA + i - 1], a[desdeA + i + GRAMA - 1], potencia);
+            }
+            if (!muestreada(hash)) {
+                continue;
+            }
+            int casilla = casilla(claves, enA, hash, mascara);
+            if (enA[casilla] == 0) {
+                claves[casilla] = hash;
+                enA[casilla] = desdeA + i + 1;
+            } else {
+                enA[casilla] = -1;
+            }
+        }
+
+        hash = hashSecuencia(b, desdeB);
+        for (int j = 0; j < gramasB; j++) {
+            if (j > 0) {
+                hash = rodar(hash, b[desdeB + j - 1], b[desdeB + j + GRAMA - 1], potencia);
+            }
+            if (!muestreada(hash)) {
+                continue;
+            }
+            int casilla = casilla(claves, enA, hash, mascara);
+            if (enA[casilla] != 0) {
+                enB[casilla] = enB[casilla] == 0 ? desdeB + j + 1 : -1;
+            }
+        }
+
+        // Anclas en el orden de la versión nueva
+        int[] anclasA = new int[Math.min(muestreadas, gramasB)];
+        int[] anclasB = new int[anclasA.length];
+        int anclas = 0;
+        hash = hashSecuencia(b, desdeB);
+        for (int j = 0; j < gramasB && anclas < anclasA.length; j++) {
+            if (j > 0) {
+                hash = rodar(hash, b[desdeB + j - 1], b[desdeB + j + GRAMA - 1], potencia);
+            }
+            if (!muestreada(hash)) {
+                continue;
+            }
+            int casilla = casilla(claves, enA, hash, mascara);
+            if (enA[casilla] > 0 && enB[casilla] == desdeB + j + 1
+                    && mismosTokens(a, enA[casilla] - 1, b, desdeB + j)) {
+                anclasA[anclas] = enA[casilla] - 1;
+                anclasB[anclas] = desdeB + j;
+                anclas++;
+            }
+        }
+
+        // Cadena más larga de anclas que también avanza en la versión anterior
+        int[] cadena = subsecuenciaCreciente(anclasA, anclas);
+        int i = desdeA;
+        int j = desdeB;
+        for (int ancla : cadena) {
+            int ia = anclasA[ancla];
+            int jb = anclasB[ancla];
+            tramo(i, ia, j, jb);
+            igual(ia, jb, 1);
+            i = ia + 1;
+            j = jb + 1;
+        }
+        tramo(i, hastaA, j, hastaB);
+    }
+
+    /**
+     * Alinea el tramo entre dos anclas, descartando antes sus extremos iguales
+     */
+    private void tramo(int desdeA, int hastaA, int desdeB, int hastaB) {
+        long[] a = anterior.hashes;
+        long[] b = nueva.hashes;
+
+        int prefijo = 0;
+        while (desdeA + prefijo < hastaA && desdeB + prefijo < hastaB
+                && a[desdeA + prefijo] == b[desdeB + prefijo]) {
+            prefijo++;
+        }
+        igual(desdeA, desdeB, prefijo);
+        desdeA += prefijo;
+        desdeB += prefijo;
+
+        int sufijo = 0;
+        while (hastaA - sufijo > desdeA && hastaB - sufijo > desdeB && a[hastaA - 1 - sufijo] == b[hastaB - 1 - sufijo]) {
+            sufijo++;
+        }
+        if ((hastaA - sufijo - desdeA) + (hastaB - sufijo - desdeB) <= UMBRAL_ANCLAS) {
+            myers(desdeA, hastaA - sufijo, desdeB, hastaB - sufijo);
+        } else {
+            sincronizar(desdeA, hastaA - sufijo, desdeB, hastaB - sufijo);
+        }
+        igual(hastaA - sufijo, hastaB - sufijo, sufijo);
+    }
+
+    /**
+     * Alinea un tramo grande sin anclas únicas, como el de un código con
+     * bloques repetidos: avanza por la diagonal mientras los tokens coinciden
+     * y, en cada diferencia, busca la secuencia de GRAMA tokens en común más
+     * cercana y aplica Myers sólo al hueco hasta ella
+     */
+    private void sincronizar(int desdeA, int hastaA, int desdeB, int hastaB) {
+        long[] a = anterior.hashes;
+        long[] b = nueva.hashes;
+        int i = desdeA;
+        int j = desdeB;
+
+        while (i < hastaA && j < hastaB) {
+            int inicioA = i;
+            int inicioB = j;
+            while (i < hastaA && j < hastaB && a[i] == b[j]) {
+                i++;
+                j++;
+            }
+            igual(inicioA, inicioB, i - inicioA);
+            if (i == hastaA || j == hastaB) {
+                return;
+            }
+
+            long punto = resincronizar(i, hastaA, j, hastaB);
+            if (punto < 0) {
+                myers(i, hastaA, j, hastaB);
+                return;
+            }
+            int siguienteA = (int) (punto >>> 32);
+            int siguienteB = (int) punto;
+            myers(i, siguienteA, j, siguienteB);
+            i = siguienteA;
+            j = siguienteB;
+        }
+    }
+
+    /**
+     * Busca el par de posiciones más cercano a (i, j) donde empieza la misma
+     * secuencia de GRAMA tokens en ambas versiones, en ventanas cada vez más
+     * grandes hasta VENTANA_MAXIMA
+     *
+     * @return Posición en la versión anterior en los 32 bits altos y en la
+     *         nueva en los bajos, o -1 si no hay
+     */
+    private long resincronizar(int i, int hastaA, int j, int hastaB) {
+        long[] a = anterior.hashes;
+        long[] b = nueva.hashes;
+        long potencia = potencia(GRAMA - 1);
+        if (clavesVentana == null) {
+            clavesVentana = new long[VENTANA_MAXIMA * 2];
+            posicionesVentana = new int[VENTANA_MAXIMA * 2];
+            marcasVentana = new int[VENTANA_MAXIMA * 2];
+        }
+        int mascara = clavesVentana.length - 1;
+
+        for (int ventana = VENTANA_INICIAL; ventana <= VENTANA_MAXIMA; ventana *= 4) {
+            int finA = (int) Math.min(hastaA, (long) i + ventana);
+            int finB = (int) Math.min(hastaB, (long) j + ventana);
+            int gramasA = finA - i - GRAMA + 1;
+            int gramasB = finB - j - GRAMA + 1;
+
+            if (gramasA > 0 && gramasB > 0) {
+                // Primera aparición de cada secuencia en la ventana anterior
+                generacion++;
+                long hash = hashSecuencia(a, i);
+                for (int x = 0; x < gramasA; x++) {
+                    if (x > 0) {
+                        hash = rodar(hash, a[i + x - 1], a[i + x + GRAMA - 1], potencia);
+                    }
+                    int casilla = (int) (hash ^ (hash >>> 32)) & mascara;
+                    while (marcasVentana[casilla] == generacion && clavesVentana[casilla] != hash) {
+                        casilla = (casilla + 1) & mascara;
+                    }
+                    if (marcasVentana[casilla] != generacion) {
+                        marcasVentana[casilla] = generacion;
+                        clavesVentana[casilla] = hash;
+                        posicionesVentana[casilla] = i + x;
+                    }
+                }
+
+                // La más cercana según los tokens que se saltean en ambas versiones
+                long mejor = -1;
+                int distancia = Integer.MAX_VALUE;
+                hash = hashSecuencia(b, j);
+                for (int y = 0; y < gramasB && y < distancia; y++) {
+                    if (y > 0) {
+                        hash = rodar(hash, b[j + y - 1], b[j + y + GRAMA - 1], potencia);
+                    }
+                    int casilla = (int) (hash ^ (hash >>> 32)) & mascara;
+                    while (marcasVentana[casilla] == generacion && clavesVentana[casilla] != hash) {
+                        casilla = (casilla + 1) & mascara;
+                    }
+                    if (marcasVentana[casilla] == generacion) {
+                        int x = posicionesVentana[casilla];
+                        if (x - i + y < distancia && mismosTokens(a, x, b, j + y)) {
+                            distancia = x - i + y;
+                            mejor = ((long) x << 32) | (j + y);
+                        }
+                    }
+                }
+                if (mejor >= 0) {
+                    return mejor;
+                }
+            }
+            if (finA == hastaA && finB == hastaB) {
+                break;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Algoritmo de Myers sobre un tramo, guardando la frontera de cada
+     * cantidad de ediciones para reconstruir los tramos iguales. Si el tramo
+     * necesita más ediciones de las permitidas no se alinea y queda como un
+     * reemplazo entero.
+     */
+    private void myers(int desdeA, int hastaA, int desdeB, int hastaB) {
+        int n = hastaA - desdeA;
+        int m = hastaB - desdeB;
+        if (n == 0 || m == 0) {
+            return;
+        }
+
+        long[] a = anterior.hashes;
+        long[] b = nueva.hashes;
+        int limite = (int) Math.min(Math.min(MAXIMO_EDICIONES, n + m), MAXIMO_PASOS / (n + m));
+        int centro = limite + 1;
+        int[] v = new int[2 * limite + 3];
+        // Frontera de cada d: v[centro - d .. centro + d], una tras otra
+        int[] traza = new int[64];
+        int usados = 0;
+
+        int ediciones = -1;
+        for (int d = 0; d <= limite && ediciones < 0; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int movimiento = d == 0 ? BAJAR : movimiento(v, centro, k, d, n, m);
+                if (movimiento == NINGUNO) {
+                    v[centro + k] = -1;
+                    continue;
+                }
+                int x = d == 0 ? 0 : movimiento == BAJAR ? v[centro + k + 1] : v[centro + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a[desdeA + x] == b[desdeB + y]) {
+                    x++;
+                    y++;
+                }
+                v[centro + k] = x;
+                if (x == n && y == m) {
+                    ediciones = d;
+                }
+            }
+            if (usados + 2 * d + 1 > traza.length) {
+                traza = Arrays.copyOf(traza, Math.max(traza.length * 2, usados + 2 * d + 1));
+            }
+            System.arraycopy(v, centro - d, traza, usados, 2 * d + 1);
+            usados += 2 * d + 1;
+        }
+        if (ediciones < 0) {
+            return;
+        }
+
+        // Recorrer las fronteras hacia atrás; los tramos salen en orden inverso
+        int primerTramo = tramos;
+        int x = n;
+        int y = m;
+        for (int d = ediciones; d > 0; d--) {
+            // La frontera d - 1 empieza en (d - 1)^2
+            int base = (d - 1) * (d - 1);
+            int k = x - y;
+            int anteriorK = movimiento(traza, base + d - 1, k, d, n, m) == BAJAR ? k + 1 : k - 1;
+            int anteriorX = traza[base + anteriorK + d - 1];
+            int inicioX = anteriorK == k + 1 ? anteriorX : anteriorX + 1;
+            if (x > inicioX) {
+                agregarTramo(desdeA + inicioX, desdeB + inicioX - k, x - inicioX);
+            }
+            x = anteriorX;
+            y = anteriorX - anteriorK;
+        }
+        if (x > 0) {
+            agregarTramo(desdeA, desdeB, x);
+        }
+        invertirTramos(primerTramo);
+    }
+
+    /**
+     * Movimiento con el que se llega a la diagonal k con d ediciones, según la
+     * frontera de d - 1 (frontera[centro + k] es la x más lejana de la diagonal
+     * k, o -1 si no se alcanza). Como en Myers se prefiere el que llega más
+     * lejos, pero descartando los que salen de la cuadrícula de n por m.
+     */
+    private static int movimiento(int[] frontera, int centro, int k, int d, int n, int m) {
+        // Bajar es insertar un token nuevo desde la diagonal k + 1
+        boolean bajar = k != d && frontera[centro + k + 1] >= 0 && frontera[centro + k + 1] - k <= m;
+        // Avanzar es eliminar un token anterior desde la diagonal k - 1
+        boolean avanzar = k != -d && frontera[centro + k - 1] >= 0 && frontera[centro + k - 1] + 1 <= n;
+        if (bajar && (!avanzar || frontera[centro + k - 1] < frontera[centro + k + 1])) {
+            return BAJAR;
+        }
+        return avanzar ? AVANZAR : NINGUNO;
+    }
+
+    /**
+     * Registra un tramo igual, uniéndolo al anterior si lo continúa
+     */
+    private void igual(int inicioA, int inicioB, int largo) {
+        if (largo <= 0) {
+            return;
+        }
+        if (tramos > 0) {
+            int ultimo = (tramos - 1) * 3;
+            if (iguales[ultimo] + iguales[ultimo + 2] == inicioA && iguales[ultimo + 1] + iguales[ultimo + 2] == inicioB) {
+                iguales[ultimo + 2] += largo;
+                return;
+            }
+        }
+        agregarTramo(inicioA, inicioB, largo);
+    }
+
+    private void agregarTramo(int inicioA, int inicioB, int largo) {
+        if (tramos * 3 == iguales.length) {
+            iguales = Arrays.copyOf(iguales, iguales.length * 2);
+        }
+        iguales[tramos * 3] = inicioA;
+        iguales[tramos * 3 + 1] = inicioB;
+        iguales[tramos * 3 + 2] = largo;
+        tramos++;
+    }
+
+    /**
+     * Da vuelta los tramos agregados desde uno dado, y une el primero con el
+     * tramo que lo precede si lo continúa
+     */
+    private void invertirTramos(int desde) {
+        for (int i = desde, j = tramos - 1; i < j; i++, j--) {
+            for (int campo = 0; campo < 3; campo++) {
+                int temporal = iguales[i * 3 + campo];
+                iguales[i * 3 + campo] = iguales[j * 3 + campo];
+                iguales[j * 3 + campo] = temporal;
+            }
+        }
+        if (desde > 0 && desde < tramos) {
+            int previo = (desde - 1) * 3;
+            int primero = desde * 3;
+            if (iguales[previo] + iguales[previo + 2] == iguales[primero]
+                    && iguales[previo + 1] + iguales[previo + 2] == iguales[primero + 1]) {
+                iguales[previo + 2] += iguales[primero + 2];
+                System.arraycopy(iguales, primero + 3, iguales, primero, (tramos - desde - 1) * 3);
+                tramos--;
+            }
+        }
+    }
+
+    /**
+     * Los cambios son los huecos entre tramos iguales
+     */
+    private void calcularCambios() {
+        cambios = new int[(tramos + 1) * 4];
+        int i = 0;
+        int j = 0;
+        for (int t = 0; t <= tramos; t++) {
+            int inicioA = t < tramos ? iguales[t * 3] : anterior.cantidad;
+            int inicioB = t < tramos ? iguales[t * 3 + 1] : nueva.cantidad;
+            if (inicioA > i || inicioB > j) {
+                cambios[cantidadCambios * 4] = i;
+                cambios[cantidadCambios * 4 + 1] = inicioA;
+                cambios[cantidadCambios * 4 + 2] = j;
+                cambios[cantidadCambios * 4 + 3] = inicioB;
+                cantidadCambios++;
+            }
+            if (t < tramos) {
+                i = inicioA + iguales[t * 3 + 2];
+                j = inicioB + iguales[t * 3 + 2];
+            }
+        }
+    }
+
+    /**
+     * Cantidad de cambios: rangos contiguos de tokens eliminados, agregados o
+     * reemplazados
+     */
+    public int getCambios() {
+        return cantidadCambios;
+    }
+
+    /**
+     * Primer token del cambio en la versión anterior
+     */
+    public int inicioAnterior(int cambio) {
+        return cambios[cambio * 4];
+    }
+
+    /**
+     * Token siguiente al último del cambio en la versión anterior
+     */
+    public int finAnterior(int cambio) {
+        return cambios[cambio * 4 + 1];
+    }
+
+    /**
+     * Primer token del cambio en la versión nueva
+     */
+    public int inicioNuevo(int cambio) {
+        return cambios[cambio * 4 + 2];
+    }
+
+    /**
+     * Token siguiente al último del cambio en la versión nueva
+     */
+    public int finNuevo(int cambio) {
+        return cambios[cambio * 4 + 3];
+    }
+
+    /**
+     * Línea de la versión anterior donde está el cambio
+     */
+    public int lineaAnterior(int cambio) {
+        return anterior.lineaDe(inicioAnterior(cambio));
+    }
+
+    /**
+     * Línea de la versión nueva donde está el cambio
+     */
+    public int lineaNueva(int cambio) {
+        return nueva.lineaDe(inicioNuevo(cambio));
+    }
+
+    public int getTokensAnteriores() {
+        return anterior.cantidad;
+    }
+
+    public int getTokensNuevos() {
+        return nueva.cantidad;
+    }
+
+    /**
+     * Cantidad de tokens que no cambiaron
+     */
+    public int getIguales() {
+        int total = 0;
+        for (int t = 0; t < tramos; t++) {
+            total += iguales[t * 3 + 2];
+        }
+        return total;
+    }
+
+    /**
+     * Filas de los cambios para mostrar en una tabla
+     *
+     * @return Filas {tipo de cambio, línea anterior, línea nueva, texto
+     *         eliminado, texto agregado}
+     */
+    public List<Object[]> paraTabla() {
+        List<Object[]> filas = new ArrayList<>(cantidadCambios);
+        for (int c = 0; c < cantidadCambios; c++) {
+            boolean elimina = finAnterior(c) > inicioAnterior(c);
+            boolean agrega = finNuevo(c) > inicioNuevo(c);
+            String tipo = elimina && agrega ? "Reemplazado" : elimina ? "Eliminado" : "Agregado";
+            filas.add(new Object[] {
+                    tipo,
+                    lineaAnterior(c),
+                    lineaNueva(c),
+                    anterior.texto(inicioAnterior(c), finAnterior(c)),
+                    nueva.texto(inicioNuevo(c), finNuevo(c))
+            });
+        }
+        return filas;
+    }
+
+    private static int casilla(long[] claves, int[] ocupadas, long hash, int mascara) {
+        int i = (int) (hash ^ (hash >>> 32)) & mascara;
+        while (ocupadas[i] != 0 && claves[i] != hash) {
+            i = (i + 1) & mascara;
+        }
+        return i;
+    }
+
+    private static boolean muestreada(long hash) {
+        return hash >>> (64 - BITS_MUESTREO) == 0;
+    }
+
+    private static long hashSecuencia(long[] hashes, int desde) {
+        long hash = 0;
+        for (int i = 0; i < GRAMA; i++) {
+            hash = hash * MULTIPLICADOR + hashes[desde + i];
+        }
+        return hash;
+    }
+
+    /**
+     * Quita el primer token de la secuencia y agrega uno al final
+     */
+    private static long rodar(long hash, long sale, long entra, long potencia) {
+        return (hash - sale * potencia) * MULTIPLICADOR + entra;
+    }
+
+    private static long potencia(int exponente) {
+        long resultado = 1;
+        for (int i = 0; i < exponente; i++) {
+            resultado *= MULTIPLICADOR;
+        }
+        return resultado;
+    }
+
+    private static boolean mismosTokens(long[] a, int desdeA, long[] b, int desdeB) {
+        for (int i = 0; i < GRAMA; i++) {
+            if (a[desdeA + i] != b[desdeB + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Subsecuencia estrictamente creciente más larga de los valores
+     *
+     * @return Índices de los valores que la forman, en orden
+     */
+    private static int[] subsecuenciaCreciente(int[] valores, int cantidad) {
+        int[] finales = new int[cantidad];
+        int[] previos = new int[cantidad];
+        int largo = 0;
+
+        for (int i = 0; i < cantidad; i++) {
+            int bajo = 0;
+            int alto = largo;
+            while (bajo < alto) {
+                int medio = (bajo + alto) >>> 1;
+                if (valores[finales[medio]] < valores[i]) {
+                    bajo = medio + 1;
+                } else {
+                    alto = medio;
+                }
+            }
+            previos[i] = bajo > 0 ? finales[bajo - 1] : -1;
+            finales[bajo] = i;
+            if (bajo == largo) {
+                largo++;
+            }
+        }
+
+        int[] cadena = new int[largo];
+        for (int i = largo - 1, actual = largo > 0 ? finales[largo - 1] : -1; i >= 0; i--) {
+            cadena[i] = actual;
+            actual = previos[actual];
+        }
+        return cadena;
+    }
+
+    /**
+     * Tokens de una versión: el hash de cada uno y su posición, para ubicar y
+     * mostrar los cambios
+     */
+    private static final class Secuencia {
+        private final CharSequence codigo;
+        private long[] hashes;
+        private int[] inicios;
+        private int[] fines;
+        private int[] lineas;
+        private int cantidad;
+
+        /**
+         * @param capacidad Tokens estimados, para no copiar los arreglos en
+         *                  archivos grandes
+         */
+        private Secuencia(CharSequence codigo, int capacidad) {
+            this.codigo = codigo;
+            hashes = new long[capacidad];
+            inicios = new int[capacidad];
+            fines = new int[capacidad];
+            lineas = new int[capacidad];
+        }
+
+        static Secuencia java(CharSequence codigo) {
+            // Un token cada 6 caracteres o más es lo habitual en código Java
+            final Secuencia secuencia = new Secuencia(codigo, codigo.length() / 6 + 1024);
+            AnalizadorJava.analizar(codigo, (tipo, fuente, inicio, fin, linea, columna) -> secuencia.agregar(
+                    tipo.ordinal(), fuente, inicio, fin, linea));
+            return secuencia;
+        }
+
+        static Secuencia robot(CharSequence codigo) {
+            // Los comandos de robot tienen un token cada 3 caracteres o menos
+            final Secuencia secuencia = new Secuencia(codigo, codigo.length() / 3 + 1024);
+            AnalizadorRobot.analizar(codigo, (tipo, fuente, inicio, fin, linea, columna) -> secuencia.agregar(
+                    tipo.ordinal(), fuente, inicio, fin, linea));
+            return secuencia;
+        }
+
+        private void agregar(int tipo, CharSequence fuente, int inicio, int fin, int linea) {
+            if (cantidad == hashes.length) {
+                int capacidad = cantidad + (cantidad >> 1);
+                hashes = Arrays.copyOf(hashes, capacidad);
+                inicios = Arrays.copyOf(inicios, capacidad);
+                fines = Arrays.copyOf(fines, capacidad);
+                lineas = Arrays.copyOf(lineas, capacidad);
+            }
+            hashes[cantidad] = hashToken(tipo, fuente, inicio, fin);
+            inicios[cantidad] = inicio;
+            fines[cantidad] = fin;
+            lineas[cantidad] = linea;
+            cantidad++;
+        }
+
+        /**
+         * FNV-1a de 64 bits sobre el tipo y los caracteres
+         */
+        private static long hashToken(int tipo, CharSequence fuente, int inicio, int fin) {
+            long hash = (0xCBF29CE484222325L ^ tipo) * 0x100000001B3L;
+            for (int i = inicio; i < fin; i++) {
+                hash = (hash ^ fuente.charAt(i)) * 0x100000001B3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xFF51AFD7ED558CCDL;
+            return hash ^ (hash >>> 33);
+        }
+
+        /**
+         * Línea del token, o de la posición después del último si no existe
+         */
+        int lineaDe(int token) {
+            if (token < cantidad) {
+                return lineas[token];
+            }
+            return cantidad > 0 ? lineas[cantidad - 1] : 1;
+        }
+
+        /**
+         * Texto del código entre el primer y el último token del rango
+         */
+        String texto(int desde, int hasta) {
+            return desde < hasta ? codigo.subSequence(inicios[desde], fines[hasta - 1]).toString() : "";
+        }
+    }
+}
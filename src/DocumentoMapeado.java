@@ -0,0 +1,315 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.event.DocumentListener;
+import javax.swing.event.UndoableEditListener;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
+import javax.swing.text.SimpleAttributeSet;
+
+/**
+ * Documento de solo lectura sobre un TextoMapeado, para mostrar archivos muy
+ * grandes en un JTextArea sin copiarlos a un String ni al buffer de
+ * PlainDocument.
+ *
+ * El texto se decodifica por páginas a medida que la vista las pide y sólo se
+ * conservan las páginas usadas más recientemente. Los elementos de línea se
+ * crean al pedirlos, a partir del índice de líneas del texto.
+ */
+public class DocumentoMapeado implements Document {
+
+    private static final int TAMANO_PAGINA = 1 << 16;
+    private static final int PAGINAS_EN_CACHE = 32;
+
+    private final TextoMapeado texto;
+    private final Map<Object, Object> propiedades = new HashMap<>();
+    private final List<DocumentListener> oyentes = new ArrayList<>();
+    private final Element raiz = new ElementoRaiz();
+
+    // Páginas decodificadas, de la menos a la más usada
+    private final LinkedHashMap<Integer, char[]> paginas = new LinkedHashMap<Integer, char[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, char[]> mayor) {
+            return size() > PAGINAS_EN_CACHE;
+        }
+    };
+
+    public DocumentoMapeado(TextoMapeado texto) {
+        this.texto = texto;
+        propiedades.put(Document.TitleProperty, "");
+    }
+
+    public TextoMapeado getTexto() {
+        return texto;
+    }
+
+    @Override
+    public int getLength() {
+        return texto.length();
+    }
+
+    @Override
+    public String getText(int offset, int length) throws BadLocationException {
+        Segment segmento = new Segment();
+        getText(offset, length, segmento);
+        return segmento.toString();
+    }
+
+    /**
+     * Devuelve el texto sin copiarlo cuando el rango cabe en una página y el
+     * segmento acepta resultados parciales. Como en PlainDocument, después del
+     * último carácter hay un salto de línea implícito.
+     */
+    @Override
+    public void getText(int offset, int length, Segment txt) throws BadLocationException {
+        if (offset < 0 || length < 0 || offset + length > texto.length() + 1) {
+            throw new BadLocationException("Rango fuera del documento", offset);
+        }
+
+        int pagina = offset / TAMANO_PAGINA;
+        int desde = offset % TAMANO_PAGINA;
+        char[] caracteres = pagina(pagina);
+        if (desde + length <= caracteres.length) {
+            txt.array = caracteres;
+            txt.offset = desde;
+            txt.count = length;
+            return;
+        }
+        if (txt.isPartialReturn()) {
+            txt.array = caracteres;
+            txt.offset = desde;
+            txt.count = caracteres.length - desde;
+            return;
+        }
+
+        char[] copia = new char[length];
+        int copiados = 0;
+        while (copiados < length) {
+            caracteres = pagina(pagina++);
+            int cantidad = Math.min(length - copiados, caracteres.length - desde);
+            System.arraycopy(caracteres, desde, copia, copiados, cantidad);
+            copiados += cantidad;
+            desde = 0;
+        }
+        txt.array = copia;
+        txt.offset = 0;
+        txt.count = length;
+    }
+
+    /**
+     * Decodifica una página, incluyendo el salto de línea implícito al final de
+     * la última
+     */
+    private synchronized char[] pagina(int numero) {
+        char[] caracteres = paginas.get(numero);
+        if (caracteres == null) {
+            int inicio = numero * TAMANO_PAGINA;
+            int cantidad = Math.min(TAMANO_PAGINA, texto.length() + 1 - inicio);
+            caracteres = new char[cantidad];
+            int reales = Math.min(cantidad, texto.length() - inicio);
+            texto.copiar(inicio, caracteres, 0, reales);
+            if (reales < cantidad) {
+                caracteres[reales] = '\n';
+            }
+            paginas.put(numero, caracteres);
+        }
+        return caracteres;
+    }
+
+    @Override
+    public void insertString(int offset, String str, AttributeSet a) throws BadLocationException {
+        throw new BadLocationException("El documento es de solo lectura", offset);
+    }
+
+    @Override
+    public void remove(int offs, int len) throws BadLocationException {
+        throw new BadLocationException("El documento es de solo lectura", offs);
+    }
+
+    @Override
+    public Position createPosition(final int offs) throws BadLocationException {
+        if (offs < 0 || offs > texto.length() + 1) {
+            throw new BadLocationException("Posición fuera del documento", offs);
+        }
+        // El texto no cambia, así que las posiciones son fijas
+        return () -> offs;
+    }
+
+    @Override
+    public Position getStartPosition() {
+        return () -> 0;
+    }
+
+    @Override
+    public Position getEndPosition() {
+        return () -> texto.length() + 1;
+    }
+
+    @Override
+    public Element getDefaultRootElement() {
+        return raiz;
+    }
+
+    @Override
+    public Element[] getRootElements() {
+        return new Element[] { raiz };
+    }
+
+    @Override
+    public Object getProperty(Object key) {
+        return propiedades.get(key);
+    }
+
+    @Override
+    public void putProperty(Object key, Object value) {
+        propiedades.put(key, value);
+    }
+
+    @Override
+    public void addDocumentListener(DocumentListener listener) {
+        oyentes.add(listener);
+    }
+
+    @Override
+    public void removeDocumentListener(DocumentListener listener) {
+        oyentes.remove(listener);
+    }
+
+    @Override
+    public void addUndoableEditListener(UndoableEditListener listener) {
+        // El documento no se puede editar
+    }
+
+    @Override
+    public void removeUndoableEditListener(UndoableEditListener listener) {
+        // El documento no se puede editar
+    }
+
+    @Override
+    public void render(Runnable r) {
+        r.run();
+    }
+
+    /**
+     * Elemento raíz con un elemento hijo por línea
+     */
+    private class ElementoRaiz implements Element {
+        @Override
+        public Document getDocument() {
+            return DocumentoMapeado.this;
+        }
+
+        @Override
+        public Element getParentElement() {
+            return null;
+        }
+
+        @Override
+        public String getName() {
+            return "section";
+        }
+
+        @Override
+        public AttributeSet getAttributes() {
+            return SimpleAttributeSet.EMPTY;
+        }
+
+        @Override
+        public int getStartOffset() {
+            return 0;
+        }
+
+        @Override
+        public int getEndOffset() {
+            return texto.length() + 1;
+        }
+
+        @Override
+        public int getElementIndex(int offset) {
+            return texto.lineaDe(Math.max(0, Math.min(offset, texto.length())));
+        }
+
+        @Override
+        public int getElementCount() {
+            return texto.getLineas();
+        }
+
+        @Override
+        public Element getElement(int index) {
+            return index < 0 || index >= texto.getLineas() ? null : new ElementoLinea(index);
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return false;
+        }
+    }
+
+    /**
+     * Elemento de una línea, creado al pedirlo
+     */
+    private class ElementoLinea implements Element {
+        private final int linea;
+
+        ElementoLinea(int linea) {
+            this.linea = linea;
+        }
+
+        @Override
+        public Document getDocument() {
+            return DocumentoMapeado.this;
+        }
+
+        @Override
+        public Element getParentElement() {
+            return raiz;
+        }
+
+        @Override
+        public String getName() {
+            return "paragraph";
+        }
+
+        @Override
+        public AttributeSet getAttributes() {
+            return SimpleAttributeSet.EMPTY;
+        }
+
+        @Override
+        public int getStartOffset() {
+            return texto.inicioLinea(linea);
+        }
+
+        @Override
+        public int getEndOffset() {
+            return linea + 1 < texto.getLineas() ? texto.inicioLinea(linea + 1) : texto.length() + 1;
+        }
+
+        @Override
+        public int getElementIndex(int offset) {
+            return -1;
+        }
+
+        @Override
+        public int getElementCount() {
+            return 0;
+        }
+
+        @Override
+        public Element getElement(int index) {
+            return null;
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Agregador de estadísticas de tokens en flujo. Cuenta los tipos de token, la
+ * frecuencia de los identificadores y de las palabras clave y la proporción de
+ * comentarios a medida que los analizadores reconocen cada token, sin guardar
+ * listas de tokens ni mapas con enteros envueltos. Los identificadores de Java
+ * y los de robot se cuentan por separado, como los tipos de token.
+ *
+ * Una instancia no es segura entre hilos: cada hilo acumula su resultado
+ * parcial y al final se combinan con fusionar().
+ */
+public class EstadisticasTokens {
+
+    private final long[] conteoJava = new long[AnalizadorJava.TipoToken.values().length];
+    private final long[] conteoRobot = new long[AnalizadorRobot.TipoToken.values().length];
+    private final TablaFrecuencias identificadores = new TablaFrecuencias();
+    private final TablaFrecuencias identificadoresRobot = new TablaFrecuencias();
+    private final TablaFrecuencias palabrasClave = new TablaFrecuencias();
+    private long caracteresComentario;
+    private long caracteresTotales;
+    private long archivos;
+
+    // Receptores creados una sola vez para no asignar memoria en cada análisis
+    private final AnalizadorJava.ReceptorTokens receptorJava = (tipo, codigo, inicio, fin, linea, columna) -> {
+        conteoJava[tipo.ordinal()]++;
+
+        if (tipo == AnalizadorJava.TipoToken.IDENTIFICADOR) {
+            identificadores.incrementarJava(codigo, inicio, fin);
+        } else if (tipo == AnalizadorJava.TipoToken.PALABRA_CLAVE) {
+            palabrasClave.incrementarJava(codigo, inicio, fin);
+        } else if (tipo == AnalizadorJava.TipoToken.COMENTARIO) {
+            caracteresComentario += fin - inicio;
+        }
+    };
+
+    private final AnalizadorRobot.ReceptorTokens receptorRobot = (tipo, codigo, inicio, fin, linea, columna) -> {
+        conteoRobot[tipo.ordinal()]++;
+
+        if (tipo == AnalizadorRobot.TipoToken.IDENTIFICADOR) {
+            identificadoresRobot.incrementar(codigo, inicio, fin, 1);
+        }
+    };
+
+    /**
+     * Analiza un código Java y acumula sus estadísticas
+     */
+    public void agregarJava(CharSequence codigo) {
+        archivos++;
+        caracteresTotales += codigo.length();
+        AnalizadorJava.analizar(codigo, receptorJava);
+    }
+
+    /**
+     * Analiza un programa de robot y acumula sus estadísticas
+     */
+    public void agregarRobot(CharSequence codigo) {
+        archivos++;
+        caracteresTotales += codigo.length();
+        AnalizadorRobot.analizar(codigo, receptorRobot);
+    }
+
+    /**
+     * Receptor para conectar las estadísticas a un análisis Java ya en curso.
+     * No contabiliza el archivo ni sus caracteres totales.
+     */
+    public AnalizadorJava.ReceptorTokens receptorJava() {
+        return receptorJava;
+    }
+
+    /**
+     * Receptor para conectar las estadísticas a un análisis de robot ya en curso
+     */
+    public AnalizadorRobot.ReceptorTokens receptorRobot() {
+        return receptorRobot;
+    }
+
+    /**
+     * Suma a esta instancia el resultado parcial de otra
+     */
+    public void fusionar(EstadisticasTokens otra) {
+        sumar(otra, 1);
+    }
+
+    /**
+     * Descuenta de esta instancia un resultado que se había fusionado antes,
+     * por ejemplo el de un archivo que cambió
+     */
+    public void restar(EstadisticasTokens otra) {
+        sumar(otra, -1);
+    }
+
+    private void sumar(EstadisticasTokens otra, int signo) {
+        for (int i = 0; i < conteoJava.length; i++) {
+            conteoJava[i] += signo * otra.conteoJava[i];
+        }
+        for (int i = 0; i < conteoRobot.length; i++) {
+            conteoRobot[i] += signo * otra.conteoRobot[i];
+        }
+        identificadores.fusionar(otra.identificadores, signo);
+        identificadoresRobot.fusionar(otra.identificadoresRobot, signo);
+        palabrasClave.fusionar(otra.palabrasClave, signo);
+        caracteresComentario += signo * otra.caracteresComentario;
+        caracteresTotales += signo * otra.caracteresTotales;
+        archivos += signo * otra.archivos;
+    }
+
+    public long getConteo(AnalizadorJava.TipoToken tipo) {
+        return conteoJava[tipo.ordinal()];
+    }
+
+    public long getConteo(AnalizadorRobot.TipoToken tipo) {
+        return conteoRobot[tipo.ordinal()];
+    }
+
+    public long getTotalTokens() {
+        long total = 0;
+        for (long conteo : conteoJava) {
+            total += conteo;
+        }
+        for (long conteo : conteoRobot) {
+            total += conteo;
+        }
+        return total;
+    }
+
+    public long getArchivos() {
+        return archivos;
+    }
+
+    public long getIdentificadoresDistintos() {
+        return identificadores.tamano();
+    }
+
+    public long getIdentificadoresRobotDistintos() {
+        return identificadoresRobot.tamano();
+    }
+
+    /**
+     * Proporción de caracteres que pertenecen a comentarios
+     */
+    public double getProporcionComentarios() {
+        return caracteresTotales == 0 ? 0 : (double) caracteresComentario / caracteresTotales;
+    }
+
+    public long frecuenciaIdentificador(String nombre) {
+        return identificadores.conteo(nombre);
+    }
+
+    public long frecuenciaIdentificadorRobot(String nombre) {
+        return identificadoresRobot.conteo(nombre);
+    }
+
+    public long frecuenciaPalabraClave(String palabra) {
+        return palabrasClave.conteo(palabra);
+    }
+
+    /**
+     * Identificadores más frecuentes en formato tabular
+     *
+     * @param limite Cantidad máxima de filas
+     * @return Filas con el nombre y la frecuencia, de mayor a menor
+     */
+    public List<Object[]> identificadoresMasFrecuentes(int limite) {
+        return identificadores.masFrecuentes(limite);
+    }
+
+    /**
+     * Identificadores de robot más frecuentes en formato tabular
+     *
+     * @param limite Cantidad máxima de filas
+     * @return Filas con el nombre y la frecuencia, de mayor a menor
+     */
+    public List<Object[]> identificadoresRobotMasFrecuentes(int limite) {
+        return identificadoresRobot.masFrecuentes(limite);
+    }
+
+    /**
+     * Palabras clave más usadas en formato tabular
+     *
+     * @param limite Cantidad máxima de filas
+     * @return Filas con la palabra y la frecuencia, de mayor a menor
+     */
+    public List<Object[]> palabrasClaveMasUsadas(int limite) {
+        return palabrasClave.masFrecuentes(limite);
+    }
+
+    /**
+     * Analiza archivos Java en paralelo. Cada hilo acumula sus propias
+     * estadísticas y al final se fusionan en una sola instancia.
+     *
+     * @param rutas Archivos a analizar, leídos como UTF-8
+     * @param hilos Cantidad de hilos de trabajo
+     * @return Estadísticas combinadas de todos los archivos
+     */
+    public static EstadisticasTokens analizarJavaEnParalelo(final List<Path> rutas, int hilos)
+            throws IOException, InterruptedException {
+        if (hilos <= 0) {
+            throw new IllegalArgumentException("La cantidad de hilos debe ser positiva: " + hilos);
+        }
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        final AtomicInteger siguiente = new AtomicInteger();
+        List<Future<EstadisticasTokens>> parciales = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < hilos; i++) {
+                parciales.add(ejecutor.submit(() -> {
+                    EstadisticasTokens parcial = new EstadisticasTokens();
+                    for (int j = siguiente.getAndIncrement(); j < rutas.size(); j = siguiente.getAndIncrement()) {
+                        parcial.agregarJava(new String(Files.readAllBytes(rutas.get(j)), StandardCharsets.UTF_8));
+                    }
+                    return parcial;
+                }));
+            }
+
+            EstadisticasTokens total = new EstadisticasTokens();
+            for (Future<EstadisticasTokens> parcial : parciales) {
+                total.fusionar(parcial.get());
+            }
+            return total;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            ejecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Frecuencias por símbolo: el pool asigna a cada clave su número y el
+     * conteo se guarda en un arreglo indexado por ese número
+     */
+    private static class TablaFrecuencias {
+        private final PoolSimbolos pool = new PoolSimbolos();
+        private long[] conteos = new long[32];
+
+        void incrementar(CharSequence codigo, int inicio, int fin, long cantidad) {
+            sumar(pool.internar(codigo, inicio, fin), cantidad);
+        }
+
+        // Los nombres Java se cuentan con sus escapes Unicode traducidos
+        void incrementarJava(CharSequence codigo, int inicio, int fin) {
+            sumar(AnalizadorJava.internar(pool, codigo, inicio, fin), 1);
+        }
+
+        long conteo(String clave) {
+            int simbolo = pool.buscar(clave);
+            return simbolo < 0 ? 0 : conteos[simbolo];
+        }
+
+        // Cantidad de claves con conteo distinto de cero (al restar quedan ceros)
+        int tamano() {
+            int distintos = 0;
+            for (int simbolo = 0; simbolo < pool.tamano(); simbolo++) {
+                if (conteos[simbolo] != 0) {
+                    distintos++;
+                }
+            }
+            return distintos;
+        }
+
+        void fusionar(TablaFrecuencias otra, int signo) {
+            for (int simbolo = 0; simbolo < otra.pool.tamano(); simbolo++) {
+                if (otra.conteos[simbolo] != 0) {
+                    sumar(pool.internar(otra.pool, simbolo), signo * otra.conteos[simbolo]);
+                }
+            }
+        }
+
+        List<Object[]> masFrecuentes(int limite) {
+            Integer[] orden = new Integer[tamano()];
+            for (int simbolo = 0, k = 0; k < orden.length; simbolo++) {
+                if (conteos[simbolo] != 0) {
+                    orden[k++] = simbolo;
+                }
+            }
+            Arrays.sort(orden, (a, b) -> Long.compare(conteos[b], conteos[a]));
+
+            List<Object[]> filas = new ArrayList<>();
+            for (int k = 0; k < Math.min(limite, orden.length); k++) {
+                filas.add(new Object[] { pool.nombre(orden[k]), conteos[orden[k]] });
+            }
+            return filas;
+        }
+
+        private void sumar(int simbolo, long cantidad) {
+            if (simbolo >= conteos.length) {
+                conteos = Arrays.copyOf(conteos, Math.max(conteos.length * 2, simbolo + 1));
+            }
+            conteos[simbolo] += cantidad;
+        }
+    }
+}
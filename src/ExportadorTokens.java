@@ -0,0 +1,355 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Exportador de tokens a CSV o JSON Lines que escribe directamente desde el
+ * receptor del analizador a un canal, a través de un buffer de tamaño fijo.
+ * No construye Tokens, filas ni Strings: los lexemas se escapan y se
+ * codifican en UTF-8 carácter por carácter, así que la memoria usada no
+ * depende del tamaño de la entrada.
+ *
+ * Cada token produce una fila con su tipo, su lexema tal como aparece en el
+ * código, su línea y su columna.
+ */
+public class ExportadorTokens implements Closeable {
+
+    /**
+     * Formatos de salida
+     */
+    public enum Formato {
+        CSV,
+        JSONL;
+
+        /**
+         * Formato según la extensión del archivo: .jsonl o .json para JSON
+         * Lines, cualquier otra para CSV
+         */
+        public static Formato deArchivo(Path archivo) {
+            String nombre = archivo.getFileName().toString().toLowerCase();
+            return nombre.endsWith(".jsonl") || nombre.endsWith(".json") ? JSONL : CSV;
+        }
+    }
+
+    private static final int TAMANO_BUFFER = 1 << 16;
+    // Lo máximo que ocupa un carácter escrito: un escape de control en JSON
+    private static final int MAXIMO_CARACTER = 6;
+
+    private static final byte[] ENCABEZADO_CSV = ascii("tipo,lexema,linea,columna\n");
+    private static final byte[] JSON_TIPO = ascii("{\"tipo\":\"");
+    private static final byte[] JSON_LEXEMA = ascii("\",\"lexema\":\"");
+    private static final byte[] JSON_LINEA = ascii("\",\"linea\":");
+    private static final byte[] JSON_COLUMNA = ascii(",\"columna\":");
+    private static final byte[] HEXADECIMAL = ascii("0123456789abcdef");
+
+    private static final byte[][] TIPOS_JAVA = new byte[AnalizadorJava.TipoToken.values().length][];
+    private static final byte[][] TIPOS_ROBOT = new byte[AnalizadorRobot.TipoToken.values().length][];
+
+    static {
+        for (AnalizadorJava.TipoToken tipo : AnalizadorJava.TipoToken.values()) {
+            TIPOS_JAVA[tipo.ordinal()] = ascii(tipo.getDescripcion());
+        }
+        for (AnalizadorRobot.TipoToken tipo : AnalizadorRobot.TipoToken.values()) {
+            TIPOS_ROBOT[tipo.ordinal()] = ascii(tipo.getDescripcion());
+        }
+    }
+
+    private final WritableByteChannel canal;
+    private final Formato formato;
+    private final byte[] buffer = new byte[TAMANO_BUFFER];
+    private final ByteBuffer envoltura = ByteBuffer.wrap(buffer);
+    private int usados;
+    private long tokens;
+
+    /**
+     * @param canal   Canal de destino, que se cierra junto con el exportador
+     * @param formato Formato de salida
+     */
+    public ExportadorTokens(WritableByteChannel canal, Formato formato) {
+        this.canal = canal;
+        this.formato = formato;
+        if (formato == Formato.CSV) {
+            escribir(ENCABEZADO_CSV);
+        }
+    }
+
+    /**
+     * Crea o reemplaza un archivo de exportación
+     */
+    public static ExportadorTokens abrir(Path archivo, Formato formato) throws IOException {
+        return new ExportadorTokens(FileChannel.open(archivo, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), formato);
+    }
+
+    /**
+     * Analiza un código Java y exporta sus tokens a un archivo
+     *
+     * @return Cantidad de tokens exportados
+     */
+    public static long exportarJava(CharSequence codigo, Path destino, Formato formato) throws IOException {
+        try (ExportadorTokens exportador = abrir(destino, formato)) {
+            AnalizadorJava.analizar(codigo, exportador.receptorJava());
+            return exportador.getTokens();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Analiza un programa de robot y exporta sus tokens a un archivo
+     *
+     * @return Cantidad de tokens exportados
+     */
+    public static long exportarRobot(CharSequence codigo, Path destino, Formato formato) throws IOException {
+        try (ExportadorTokens exportador = abrir(destino, formato)) {
+            AnalizadorRobot.analizar(codigo, exportador.receptorRobot());
+            return exportador.getTokens();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Receptor que exporta los tokens Java. Los errores de escritura se lanzan
+     * como UncheckedIOException.
+     */
+    public AnalizadorJava.ReceptorTokens receptorJava() {
+        return (tipo, codigo, inicio, fin, linea, columna) -> token(TIPOS_JAVA[tipo.ordinal()], codigo, inicio,
+                fin, linea, columna);
+    }
+
+    /**
+     * Receptor que exporta los tokens de robot. Los errores de escritura se
+     * lanzan como UncheckedIOException.
+     */
+    public AnalizadorRobot.ReceptorTokens receptorRobot() {
+        return (tipo, codigo, inicio, fin, linea, columna) -> token(TIPOS_ROBOT[tipo.ordinal()], codigo, inicio,
+                fin, linea, columna);
+    }
+
+    /**
+     * Cantidad de tokens exportados hasta ahora
+     */
+    public long getTokens() {
+        return tokens;
+    }
+
+    private void token(byte[] tipo, CharSequence codigo, int inicio, int fin, int linea, int columna) {
+        if (formato == Formato.CSV) {
+            escribir(tipo);
+            escribirByte(',');
+            escribirCsv(codigo, inicio, fin);
+            escribirByte(',');
+            escribirNumero(linea);
+            escribirByte(',');
+            escribirNumero(columna);
+        } else {
+            escribir(JSON_TIPO);
+            escribir(tipo);
+            escribir(JSON_LEXEMA);
+            escribirLexema(codigo, inicio, fin, true);
+            escribir(JSON_LINEA);
+            escribirNumero(linea);
+            escribir(JSON_COLUMNA);
+            escribirNumero(columna);
+            escribirByte('}');
+        }
+        escribirByte('\n');
+        tokens++;
+    }
+
+    /**
+     * Escribe un campo CSV, entre comillas sólo si tiene comas, comillas o
+     * saltos de línea
+     */
+    private void escribirCsv(CharSequence codigo, int inicio, int fin) {
+        boolean comillas = false;
+        for (int i = inicio; i < fin && !comillas; i++) {
+            char c = codigo.charAt(i);
+            comillas = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (comillas) {
+            escribirByte('"');
+        }
+        escribirLexema(codigo, inicio, fin, false);
+        if (comillas) {
+            escribirByte('"');
+        }
+    }
+
+    /**
+     * Escribe el lexema escapado para el formato, uniendo los pares sustitutos
+     * en un solo carácter UTF-8 de 4 bytes
+     */
+    private void escribirLexema(CharSequence codigo, int inicio, int fin, boolean json) {
+        for (int i = inicio; i < fin; i++) {
+            char c = codigo.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < fin && Character.isLowSurrogate(codigo.charAt(i + 1))) {
+                escribirCodigo(Character.toCodePoint(c, codigo.charAt(++i)));
+            } else if (json) {
+                escribirJson(c);
+            } else {
+                if (c == '"') {
+                    escribirByte('"');
+                }
+                escribirCaracter(c);
+            }
+        }
+    }
+
+    /**
+     * Escribe un carácter dentro de un String JSON
+     */
+    private void escribirJson(char c) {
+        if (usados + MAXIMO_CARACTER > buffer.length) {
+            vaciar();
+        }
+
+        switch (c) {
+            case '"':
+            case '\\':
+                buffer[usados++] = '\\';
+                buffer[usados++] = (byte) c;
+                return;
+            case '\n':
+                buffer[usados++] = '\\';
+                buffer[usados++] = 'n';
+                return;
+            case '\r':
+                buffer[usados++] = '\\';
+                buffer[usados++] = 'r';
+                return;
+            case '\t':
+                buffer[usados++] = '\\';
+                buffer[usados++] = 't';
+                return;
+            default:
+                break;
+        }
+
+        if (c < 0x20) {
+            buffer[usados++] = '\\';
+            buffer[usados++] = 'u';
+            buffer[usados++] = '0';
+            buffer[usados++] = '0';
+            buffer[usados++] = HEXADECIMAL[c >> 4];
+            buffer[usados++] = HEXADECIMAL[c & 0xF];
+        } else {
+            escribirCaracter(c);
+        }
+    }
+
+    /**
+     * Codifica un carácter en UTF-8
+     */
+    private void escribirCaracter(char c) {
+        if (c < 0x80) {
+            escribirByte(c);
+        } else if (Character.isSurrogate(c)) {
+            // Sustituto sin pareja: no se puede representar en UTF-8
+            escribirByte('?');
+        } else {
+            escribirCodigo(c);
+        }
+    }
+
+    private void escribirCodigo(int codigo) {
+        if (usados + 4 > buffer.length) {
+            vaciar();
+        }
+
+        if (codigo < 0x80) {
+            buffer[usados++] = (byte) codigo;
+        } else if (codigo < 0x800) {
+            buffer[usados++] = (byte) (0xC0 | (codigo >> 6));
+            buffer[usados++] = (byte) (0x80 | (codigo & 0x3F));
+        } else if (codigo < 0x10000) {
+            buffer[usados++] = (byte) (0xE0 | (codigo >> 12));
+            buffer[usados++] = (byte) (0x80 | ((codigo >> 6) & 0x3F));
+            buffer[usados++] = (byte) (0x80 | (codigo & 0x3F));
+        } else {
+            buffer[usados++] = (byte) (0xF0 | (codigo >> 18));
+            buffer[usados++] = (byte) (0x80 | ((codigo >> 12) & 0x3F));
+            buffer[usados++] = (byte) (0x80 | ((codigo >> 6) & 0x3F));
+            buffer[usados++] = (byte) (0x80 | (codigo & 0x3F));
+        }
+    }
+
+    /**
+     * Escribe un entero en decimal sin pasar por un String
+     */
+    private void escribirNumero(int numero) {
+        if (usados + 11 > buffer.length) {
+            vaciar();
+        }
+        if (numero < 0) {
+            buffer[usados++] = '-';
+            numero = -numero;
+        }
+
+        int digitos = 1;
+        for (int resto = numero / 10; resto > 0; resto /= 10) {
+            digitos++;
+        }
+        for (int i = usados + digitos - 1; i >= usados; i--) {
+            buffer[i] = (byte) ('0' + numero % 10);
+            numero /= 10;
+        }
+        usados += digitos;
+    }
+
+    private void escribirByte(int valor) {
+        if (usados == buffer.length) {
+            vaciar();
+        }
+        buffer[usados++] = (byte) valor;
+    }
+
+    private void escribir(byte[] bytes) {
+        if (usados + bytes.length > buffer.length) {
+            vaciar();
+        }
+        System.arraycopy(bytes, 0, buffer, usados, bytes.length);
+        usados += bytes.length;
+    }
+
+    /**
+     * Escribe en el canal el contenido del buffer
+     */
+    private void vaciar() {
+        envoltura.clear().limit(usados);
+        try {
+            while (envoltura.hasRemaining()) {
+                canal.write(envoltura);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        usados = 0;
+    }
+
+    /**
+     * Escribe lo pendiente y cierra el canal
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            vaciar();
+        } catch (UncheckedIOException e) {
+            canal.close();
+            throw e.getCause();
+        }
+        canal.close();
+    }
+
+    private static byte[] ascii(String texto) {
+        return texto.getBytes(StandardCharsets.US_ASCII);
+    }
+}
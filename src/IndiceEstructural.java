@@ -0,0 +1,480 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Índice estructural de un código Java: parejas de llaves, paréntesis y
+ * corchetes, su profundidad y las cabeceras de clases y métodos. Se construye
+ * como un receptor de AnalizadorJava, en la misma pasada que el análisis
+ * léxico, y guarda todo en arreglos primitivos ordenados por posición, de modo
+ * que ir a la pareja de un corchete o encontrar el bloque o la declaración que
+ * contiene una posición son búsquedas binarias y no recorridos de tokens.
+ *
+ * Se reconoce como clase un class, interface, enum o record seguido de su
+ * nombre y, más adelante, de una llave; como método (o constructor), un
+ * identificador seguido de paréntesis, opcionalmente de throws, y de una
+ * llave. Los métodos sin cuerpo no se registran, y tampoco las constantes de
+ * un enum con argumentos y cuerpo. Los delimitadores se reconocen también
+ * escritos como escapes Unicode.
+ */
+public class IndiceEstructural {
+
+    /**
+     * Tipos de declaración
+     */
+    public enum TipoDeclaracion {
+        CLASE("Clase"),
+        METODO("Método");
+
+        private final String descripcion;
+
+        TipoDeclaracion(String descripcion) {
+            this.descripcion = descripcion;
+        }
+
+        public String getDescripcion() {
+            return descripcion;
+        }
+    }
+
+    private static final TipoDeclaracion[] TIPOS = TipoDeclaracion.values();
+
+    // Estados del reconocimiento de cabeceras
+    private static final int NORMAL = 0;
+    private static final int CABECERA_DE_CLASE = 1;
+    private static final int CABECERA_DE_METODO = 2;
+
+    private CharSequence codigo;
+
+    // Corchetes en orden de aparición: posición, carácter, pareja (-1 si no la
+    // tiene), corchete abierto que lo contiene (-1 en el nivel superior) y
+    // profundidad (cantidad de corchetes abiertos que lo contienen)
+    private int[] posiciones = new int[256];
+    private char[] caracteres = new char[256];
+    private int[] parejas = new int[256];
+    private int[] padres = new int[256];
+    private int[] profundidades = new int[256];
+    private int corchetes;
+
+    // Corchetes abiertos y, para cada paréntesis que puede empezar los
+    // parámetros de un método, el nombre que lo precede
+    private int[] pila = new int[64];
+    private int[] pilaInicioNombre = new int[64];
+    private int[] pilaFinNombre = new int[64];
+    private int[] pilaLineaNombre = new int[64];
+    private int tope;
+
+    // Llaves de enum cuyas constantes todavía no terminan, porque no ha venido
+    // el punto y coma que las separa de los miembros
+    private boolean[] pilaConstantes = new boolean[64];
+
+    // Declaraciones en el orden en que se abre su cuerpo
+    private byte[] tiposDeclaracion = new byte[32];
+    private int[] iniciosNombre = new int[32];
+    private int[] finesNombre = new int[32];
+    private int[] lineasDeclaracion = new int[32];
+    private int[] cuerpos = new int[32];
+    private int[] iniciosCuerpo = new int[32];
+    private int[] padresDeclaracion = new int[32];
+    private int declaraciones;
+
+    // Declaraciones con el cuerpo abierto
+    private int[] pilaDeclaracion = new int[16];
+    private int topeDeclaracion;
+
+    // Cabecera en curso y su nombre
+    private int estado = NORMAL;
+    private int inicioNombre;
+    private int finNombre;
+    private int lineaNombre;
+    private boolean cabeceraDeEnum;
+    private int topeCabecera;
+
+    // Último identificador y token anterior
+    private int inicioIdentificador;
+    private int finIdentificador;
+    private int lineaIdentificador;
+    private boolean anteriorEsClase;
+    private boolean anteriorEsEnum;
+    private boolean anteriorEsNombre;
+    private boolean anteriorEsPuntoONew;
+    private boolean nombreEsLlamada;
+
+    /**
+     * Analiza un código e indexa su estructura
+     */
+    public static IndiceEstructural indexar(CharSequence codigo) {
+        IndiceEstructural indice = new IndiceEstructural();
+        AnalizadorJava.analizar(codigo, indice.receptor());
+        return indice;
+    }
+
+    /**
+     * Receptor que indexa los tokens de un código
+     */
+    public AnalizadorJava.ReceptorTokens receptor() {
+        return this::token;
+    }
+
+    /**
+     * Receptor que indexa cada token y luego lo pasa a otro receptor, para
+     * construir el índice en la misma pasada que otro consumidor
+     */
+    public AnalizadorJava.ReceptorTokens receptor(final AnalizadorJava.ReceptorTokens siguiente) {
+        return (tipo, fuente, inicio, fin, linea, columna) -> {
+            token(tipo, fuente, inicio, fin, linea, columna);
+            siguiente.token(tipo, fuente, inicio, fin, linea, columna);
+        };
+    }
+
+    private void token(AnalizadorJava.TipoToken tipo, CharSequence fuente, int inicio, int fin, int linea,
+            int columna) {
+        codigo = fuente;
+        boolean delimitador = tipo == AnalizadorJava.TipoToken.DELIMITADOR;
+        char c = delimitador ? AnalizadorJava.caracterUnico(fuente, inicio, fin) : 0;
+
+        TipoDeclaracion declarada = reconocerCabecera(tipo, fuente, inicio, fin, linea, delimitador, c);
+
+        if (delimitador) {
+            if (c == '(' || c == '{' || c == '[') {
+                abrir(c, inicio);
+                if (declarada != null) {
+                    declarar(declarada);
+                    pilaConstantes[tope - 1] = declarada == TipoDeclaracion.CLASE && cabeceraDeEnum;
+                }
+            } else if (c == ')' || c == '}' || c == ']') {
+                cerrar(c, inicio);
+            } else if (c == ';' && tope > 0) {
+                pilaConstantes[tope - 1] = false;
+            }
+        }
+
+        // Un nombre precedido de un punto o de new es una llamada
+        if (tipo == AnalizadorJava.TipoToken.IDENTIFICADOR) {
+            nombreEsLlamada = anteriorEsPuntoONew;
+            inicioIdentificador = inicio;
+            finIdentificador = fin;
+            lineaIdentificador = linea;
+        }
+        anteriorEsNombre = tipo == AnalizadorJava.TipoToken.IDENTIFICADOR;
+        anteriorEsPuntoONew = delimitador ? c == '.'
+                : tipo == AnalizadorJava.TipoToken.PALABRA_CLAVE && AnalizadorJava.rangoIgual("new", fuente,
+                        inicio, fin);
+        anteriorEsClase = tipo == AnalizadorJava.TipoToken.PALABRA_CLAVE ? esClase(fuente, inicio, fin)
+                : tipo == AnalizadorJava.TipoToken.IDENTIFICADOR && AnalizadorJava.rangoIgual("record", fuente,
+                        inicio, fin);
+        anteriorEsEnum = tipo == AnalizadorJava.TipoToken.PALABRA_CLAVE && AnalizadorJava.rangoIgual("enum",
+                fuente, inicio, fin);
+    }
+
+    /**
+     * Avanza el reconocimiento de cabeceras con un token
+     *
+     * @return Tipo de la declaración cuyo cuerpo abre este token, o null
+     */
+    private TipoDeclaracion reconocerCabecera(AnalizadorJava.TipoToken tipo, CharSequence fuente, int inicio,
+            int fin, int linea, boolean delimitador, char c) {
+        switch (estado) {
+            case CABECERA_DE_CLASE:
+                // extends, implements, parámetros de tipo y los componentes de
+                // un record hasta la llave
+                if (delimitador && (c == '{' || c == ';' || c == '}' || (c == ')' && tope <= topeCabecera))) {
+                    estado = NORMAL;
+                    return c == '{' ? TipoDeclaracion.CLASE : null;
+                }
+                return null;
+            case CABECERA_DE_METODO:
+                // Después de los parámetros sólo puede venir throws y la llave
+                if (delimitador && c == '{') {
+                    estado = NORMAL;
+                    return TipoDeclaracion.METODO;
+                }
+                if (tipo == AnalizadorJava.TipoToken.IDENTIFICADOR || (delimitador && (c == '.' || c == ','))
+                        || AnalizadorJava.rangoIgual("throws", fuente, inicio, fin)) {
+                    return null;
+                }
+                estado = NORMAL;
+                break;
+            default:
+                break;
+        }
+
+        // class, interface, enum o record seguido del nombre
+        if (anteriorEsClase && tipo == AnalizadorJava.TipoToken.IDENTIFICADOR) {
+            estado = CABECERA_DE_CLASE;
+            cabeceraDeEnum = anteriorEsEnum;
+            topeCabecera = tope;
+            inicioNombre = inicio;
+            finNombre = fin;
+            lineaNombre = linea;
+        }
+        return null;
+    }
+
+    private static boolean esClase(CharSequence fuente, int inicio, int fin) {
+        return AnalizadorJava.rangoIgual("class", fuente, inicio, fin)
+                || AnalizadorJava.rangoIgual("interface", fuente, inicio, fin)
+                || AnalizadorJava.rangoIgual("enum", fuente, inicio, fin);
+    }
+
+    private void abrir(char c, int posicion) {
+        int corchete = agregarCorchete(c, posicion);
+        padres[corchete] = tope > 0 ? pila[tope - 1] : -1;
+        profundidades[corchete] = tope;
+
+        if (tope == pila.length) {
+            int capacidad = tope * 2;
+            pila = Arrays.copyOf(pila, capacidad);
+            pilaInicioNombre = Arrays.copyOf(pilaInicioNombre, capacidad);
+            pilaFinNombre = Arrays.copyOf(pilaFinNombre, capacidad);
+            pilaLineaNombre = Arrays.copyOf(pilaLineaNombre, capacidad);
+            pilaConstantes = Arrays.copyOf(pilaConstantes, capacidad);
+        }
+
+        // Un nombre seguido de un paréntesis puede ser la cabecera de un
+        // método, salvo entre las constantes de un enum
+        if (c == '(' && anteriorEsNombre && !nombreEsLlamada && estado == NORMAL
+                && (tope == 0 || !pilaConstantes[tope - 1])) {
+            pilaInicioNombre[tope] = inicioIdentificador;
+            pilaFinNombre[tope] = finIdentificador;
+            pilaLineaNombre[tope] = lineaIdentificador;
+        } else {
+            pilaInicioNombre[tope] = -1;
+        }
+        pilaConstantes[tope] = false;
+        pila[tope++] = corchete;
+    }
+
+    private void cerrar(char c, int posicion) {
+        int corchete = agregarCorchete(c, posicion);
+        char apertura = c == ')' ? '(' : c == '}' ? '{' : '[';
+
+        // Un corchete que no coincide con el último abierto queda sin pareja
+        if (tope == 0 || caracteres[pila[tope - 1]] != apertura) {
+            padres[corchete] = tope > 0 ? pila[tope - 1] : -1;
+            profundidades[corchete] = tope;
+            return;
+        }
+
+        int abierto = pila[--tope];
+        parejas[abierto] = corchete;
+        parejas[corchete] = abierto;
+        padres[corchete] = padres[abierto];
+        profundidades[corchete] = profundidades[abierto];
+
+        if (topeDeclaracion > 0 && cuerpos[pilaDeclaracion[topeDeclaracion - 1]] == abierto) {
+            topeDeclaracion--;
+        }
+
+        // Terminaron los parámetros de un posible método: esperar su cuerpo
+        if (pilaInicioNombre[tope] >= 0) {
+            estado = CABECERA_DE_METODO;
+            inicioNombre = pilaInicioNombre[tope];
+            finNombre = pilaFinNombre[tope];
+            lineaNombre = pilaLineaNombre[tope];
+        }
+    }
+
+    private int agregarCorchete(char c, int posicion) {
+        if (corchetes == posiciones.length) {
+            int capacidad = corchetes + (corchetes >> 1);
+            posiciones = Arrays.copyOf(posiciones, capacidad);
+            caracteres = Arrays.copyOf(caracteres, capacidad);
+            parejas = Arrays.copyOf(parejas, capacidad);
+            padres = Arrays.copyOf(padres, capacidad);
+            profundidades = Arrays.copyOf(profundidades, capacidad);
+        }
+
+        posiciones[corchetes] = posicion;
+        caracteres[corchetes] = c;
+        parejas[corchetes] = -1;
+        return corchetes++;
+    }
+
+    /**
+     * Registra la declaración cuyo cuerpo es la llave recién abierta
+     */
+    private void declarar(TipoDeclaracion tipo) {
+        if (declaraciones == cuerpos.length) {
+            int capacidad = declaraciones * 2;
+            tiposDeclaracion = Arrays.copyOf(tiposDeclaracion, capacidad);
+            iniciosNombre = Arrays.copyOf(iniciosNombre, capacidad);
+            finesNombre = Arrays.copyOf(finesNombre, capacidad);
+            lineasDeclaracion = Arrays.copyOf(lineasDeclaracion, capacidad);
+            cuerpos = Arrays.copyOf(cuerpos, capacidad);
+            iniciosCuerpo = Arrays.copyOf(iniciosCuerpo, capacidad);
+            padresDeclaracion = Arrays.copyOf(padresDeclaracion, capacidad);
+        }
+        if (topeDeclaracion == pilaDeclaracion.length) {
+            pilaDeclaracion = Arrays.copyOf(pilaDeclaracion, topeDeclaracion * 2);
+        }
+
+        int cuerpo = corchetes - 1;
+        tiposDeclaracion[declaraciones] = (byte) tipo.ordinal();
+        iniciosNombre[declaraciones] = inicioNombre;
+        finesNombre[declaraciones] = finNombre;
+        lineasDeclaracion[declaraciones] = lineaNombre;
+        cuerpos[declaraciones] = cuerpo;
+        iniciosCuerpo[declaraciones] = posiciones[cuerpo];
+        padresDeclaracion[declaraciones] = topeDeclaracion > 0 ? pilaDeclaracion[topeDeclaracion - 1] : -1;
+        pilaDeclaracion[topeDeclaracion++] = declaraciones++;
+    }
+
+    /**
+     * Posición de la pareja del corchete que está en la posición indicada
+     *
+     * @return Posición de la pareja, o -1 si en la posición no hay un corchete
+     *         o no tiene pareja
+     */
+    public int pareja(int posicion) {
+        int corchete = Arrays.binarySearch(posiciones, 0, corchetes, posicion);
+        if (corchete < 0 || parejas[corchete] < 0) {
+            return -1;
+        }
+        return posiciones[parejas[corchete]];
+    }
+
+    /**
+     * Corchete abierto más interno que contiene la posición: está antes de ella
+     * y su pareja está en ella o después (o no tiene pareja)
+     *
+     * @return Número del corchete, o -1 si la posición está en el nivel superior
+     */
+    public int bloqueEn(int posicion) {
+        // Último corchete antes de la posición
+        int corchete = Arrays.binarySearch(posiciones, 0, corchetes, posicion);
+        corchete = corchete >= 0 ? corchete - 1 : -corchete - 2;
+
+        if (corchete >= 0 && !esApertura(corchete)) {
+            corchete = padres[corchete];
+        }
+        while (corchete >= 0 && parejas[corchete] >= 0 && posiciones[parejas[corchete]] < posicion) {
+            corchete = padres[corchete];
+        }
+        return corchete;
+    }
+
+    /**
+     * Cantidad de corchetes abiertos que contienen la posición
+     */
+    public int profundidad(int posicion) {
+        int bloque = bloqueEn(posicion);
+        return bloque < 0 ? 0 : profundidades[bloque] + 1;
+    }
+
+    /**
+     * Declaración más interna cuyo cuerpo contiene la posición
+     *
+     * @return Número de la declaración, o -1 si no hay
+     */
+    public int declaracionEn(int posicion) {
+        int declaracion = Arrays.binarySearch(iniciosCuerpo, 0, declaraciones, posicion);
+        declaracion = declaracion >= 0 ? declaracion - 1 : -declaracion - 2;
+
+        while (declaracion >= 0) {
+            int cierre = parejas[cuerpos[declaracion]];
+            if (cierre < 0 || posiciones[cierre] >= posicion) {
+                break;
+            }
+            declaracion = padresDeclaracion[declaracion];
+        }
+        return declaracion;
+    }
+
+    private boolean esApertura(int corchete) {
+        char c = caracteres[corchete];
+        return c == '(' || c == '{' || c == '[';
+    }
+
+    public int getCorchetes() {
+        return corchetes;
+    }
+
+    public int posicionCorchete(int corchete) {
+        return posiciones[corchete];
+    }
+
+    public char caracterCorchete(int corchete) {
+        return caracteres[corchete];
+    }
+
+    /**
+     * Número del corchete pareja, o -1 si no tiene
+     */
+    public int parejaCorchete(int corchete) {
+        return parejas[corchete];
+    }
+
+    public int profundidadCorchete(int corchete) {
+        return profundidades[corchete];
+    }
+
+    public int getDeclaraciones() {
+        return declaraciones;
+    }
+
+    public TipoDeclaracion tipoDeclaracion(int declaracion) {
+        return TIPOS[tiposDeclaracion[declaracion]];
+    }
+
+    public String nombreDeclaracion(int declaracion) {
+        return codigo.subSequence(iniciosNombre[declaracion], finesNombre[declaracion]).toString();
+    }
+
+    /**
+     * Posición del nombre de la declaración
+     */
+    public int inicioDeclaracion(int declaracion) {
+        return iniciosNombre[declaracion];
+    }
+
+    public int lineaDeclaracion(int declaracion) {
+        return lineasDeclaracion[declaracion];
+    }
+
+    /**
+     * Posición de la llave que cierra el cuerpo, o -1 si no se cerró
+     */
+    public int finDeclaracion(int declaracion) {
+        int cierre = parejas[cuerpos[declaracion]];
+        return cierre < 0 ? -1 : posiciones[cierre];
+    }
+
+    /**
+     * Declaración que contiene a esta, o -1 si está en el nivel superior
+     */
+    public int padreDeclaracion(int declaracion) {
+        return padresDeclaracion[declaracion];
+    }
+
+    /**
+     * Cantidad de declaraciones que contienen a esta
+     */
+    public int nivelDeclaracion(int declaracion) {
+        int nivel = 0;
+        for (int padre = padresDeclaracion[declaracion]; padre >= 0; padre = padresDeclaracion[padre]) {
+            nivel++;
+        }
+        return nivel;
+    }
+
+    /**
+     * Esquema de las declaraciones para mostrar en una tabla
+     *
+     * @return Filas {nombre sangrado según el nivel, tipo, línea}
+     */
+    public List<Object[]> esquema() {
+        List<Object[]> filas = new ArrayList<>(declaraciones);
+        StringBuilder nombre = new StringBuilder();
+
+        for (int i = 0; i < declaraciones; i++) {
+            nombre.setLength(0);
+            for (int nivel = nivelDeclaracion(i); nivel > 0; nivel--) {
+                nombre.append("    ");
+            }
+            nombre.append(codigo, iniciosNombre[i], finesNombre[i]);
+            filas.add(new Object[] { nombre.toString(), tipoDeclaracion(i).getDescripcion(), lineasDeclaracion[i] });
+        }
+        return filas;
+    }
+}
@@ -0,0 +1,415 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Índice invertido de identificadores entre archivos. Relaciona cada
+ * identificador con las posiciones (archivo, línea, columna) donde aparece,
+ * según la salida de AnalizadorJava, y se guarda en disco para no tener que
+ * volver a analizar todo el código en cada consulta.
+ *
+ * Al actualizar, sólo se vuelven a analizar los archivos cuyo tamaño o fecha
+ * de modificación cambió; las posiciones de un archivo se reemplazan sin
+ * tocar las del resto.
+ */
+public class IndiceInvertido {
+
+    private static final int MAGICO = 0x49445832; // "IDX2"
+
+    // Archivos indexados; el índice en la lista es el número de archivo
+    private final List<String> rutas = new ArrayList<>();
+    private final List<long[]> firmas = new ArrayList<>(); // {tamaño, modificación}
+    private final List<int[]> simbolosPorArchivo = new ArrayList<>();
+    private final Map<String, Integer> numeroArchivo = new HashMap<>();
+
+    // Posiciones de cada símbolo del pool
+    private final PoolSimbolos pool = new PoolSimbolos(1024);
+    private Posiciones[] posiciones = new Posiciones[1024];
+
+    // Símbolos ordenados por nombre para las búsquedas por prefijo
+    private int[] ordenados = new int[0];
+    private boolean ordenVigente = true;
+
+    /**
+     * Indexa los archivos .java de un directorio. Los archivos sin cambios se
+     * omiten y los que ya no existen, incluso los que desaparecen durante el
+     * recorrido, se eliminan del índice.
+     *
+     * @param raiz Directorio a recorrer
+     * @return Cantidad de archivos que se volvieron a analizar
+     */
+    public int indexarDirectorio(Path raiz) throws IOException {
+        List<Path> archivos;
+        try (Stream<Path> recorrido = Files.walk(raiz)) {
+            archivos = recorrido.filter(p -> Files.isRegularFile(p) && p.toString().endsWith(".java"))
+                    .collect(Collectors.toList());
+        }
+
+        BitSet vistos = new BitSet();
+        int analizados = 0;
+        for (Path archivo : archivos) {
+            try {
+                if (actualizar(archivo)) {
+                    analizados++;
+                }
+            } catch (NoSuchFileException e) {
+                // Se borró después del recorrido: se trata como eliminado
+                continue;
+            }
+            vistos.set(numeroArchivo.get(clave(archivo)));
+        }
+
+        // Eliminar los archivos del directorio que ya no existen
+        Path base = Paths.get(clave(raiz));
+        for (int archivo = 0; archivo < rutas.size(); archivo++) {
+            String ruta = rutas.get(archivo);
+            if (ruta != null && !vistos.get(archivo) && Paths.get(ruta).startsWith(base)) {
+                eliminar(Paths.get(ruta));
+            }
+        }
+        return analizados;
+    }
+
+    /**
+     * Actualiza las posiciones de un archivo si cambió desde la última vez
+     *
+     * @return true si el archivo se volvió a analizar
+     */
+    public boolean actualizar(Path archivo) throws IOException {
+        long tamano = Files.size(archivo);
+        long modificado = Files.getLastModifiedTime(archivo).toMillis();
+        String ruta = clave(archivo);
+        Integer numero = numeroArchivo.get(ruta);
+
+        if (numero != null) {
+            long[] firma = firmas.get(numero);
+            if (firma[0] == tamano && firma[1] == modificado) {
+                return false;
+            }
+        }
+
+        String codigo = new String(Files.readAllBytes(archivo), StandardCharsets.UTF_8);
+        indexar(ruta, codigo, tamano, modificado);
+        return true;
+    }
+
+    /**
+     * Reemplaza las posiciones de un archivo con las de su código actual
+     *
+     * @param ruta       Nombre con el que se registra el archivo
+     * @param codigo     Código fuente del archivo
+     * @param tamano     Tamaño del archivo, para detectar cambios
+     * @param modificado Fecha de modificación, para detectar cambios
+     */
+    public void indexar(String ruta, CharSequence codigo, long tamano, long modificado) {
+        Integer existente = numeroArchivo.get(ruta);
+        final int archivo;
+        if (existente != null) {
+            archivo = existente;
+            quitarPosiciones(archivo);
+        } else {
+            archivo = rutas.size();
+            rutas.add(ruta);
+            firmas.add(null);
+            simbolosPorArchivo.add(null);
+            numeroArchivo.put(ruta, archivo);
+        }
+
+        final BitSet usados = new BitSet();
+        AnalizadorJava.analizar(codigo, (tipo, fuente, inicio, fin, linea, columna) -> {
+            if (tipo == AnalizadorJava.TipoToken.IDENTIFICADOR) {
+                int simbolo = simbolo(fuente, inicio, fin);
+                posiciones[simbolo].agregar(archivo, linea, columna);
+                usados.set(simbolo);
+            }
+        });
+
+        firmas.set(archivo, new long[] { tamano, modificado });
+        simbolosPorArchivo.set(archivo, usados.stream().toArray());
+    }
+
+    /**
+     * Elimina un archivo y todas sus posiciones del índice
+     */
+    public void eliminar(Path archivo) {
+        Integer numero = numeroArchivo.remove(clave(archivo));
+        if (numero != null) {
+            quitarPosiciones(numero);
+            rutas.set(numero, null);
+            firmas.set(numero, null);
+            simbolosPorArchivo.set(numero, null);
+        }
+    }
+
+    /**
+     * Busca todas las apariciones de un identificador
+     *
+     * @param identificador Nombre exacto a buscar
+     * @return Filas con archivo, línea y columna
+     */
+    public List<Object[]> buscar(String identificador) {
+        List<Object[]> filas = new ArrayList<>();
+        int simbolo = pool.buscar(identificador);
+        if (simbolo >= 0) {
+            agregarFilas(filas, simbolo, false);
+        }
+        return filas;
+    }
+
+    /**
+     * Busca las apariciones de todos los identificadores que empiezan con el
+     * prefijo, ordenadas por identificador
+     *
+     * @param prefijo Inicio de los identificadores a buscar
+     * @return Filas con identificador, archivo, línea y columna
+     */
+    public List<Object[]> buscarPrefijo(String prefijo) {
+        ordenar();
+        List<Object[]> filas = new ArrayList<>();
+
+        // Búsqueda binaria del primer símbolo mayor o igual al prefijo
+        int bajo = 0;
+        int alto = ordenados.length;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (pool.nombre(ordenados[medio]).compareTo(prefijo) < 0) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+
+        for (int i = bajo; i < ordenados.length && pool.nombre(ordenados[i]).startsWith(prefijo); i++) {
+            agregarFilas(filas, ordenados[i], true);
+        }
+        return filas;
+    }
+
+    /**
+     * Cantidad de archivos en el índice
+     */
+    public int getArchivos() {
+        return numeroArchivo.size();
+    }
+
+    /**
+     * Guarda el índice en disco. Se escribe primero en un archivo temporal para
+     * no dejar un índice a medias si la escritura falla.
+     *
+     * El archivo se guarda compactado: no incluye los archivos eliminados ni
+     * los símbolos que se quedaron sin posiciones, y los archivos restantes se
+     * numeran de nuevo. Al cargarlo se recupera el espacio que ocupaban.
+     */
+    public void guardar(Path destino) throws IOException {
+        Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+
+        // Número de cada archivo en el índice compactado
+        int[] nuevoNumero = new int[rutas.size()];
+        int archivos = 0;
+        for (int archivo = 0; archivo < rutas.size(); archivo++) {
+            nuevoNumero[archivo] = rutas.get(archivo) != null ? archivos++ : -1;
+        }
+        int simbolos = 0;
+        for (int simbolo = 0; simbolo < pool.tamano(); simbolo++) {
+            if (posiciones[simbolo].tamano > 0) {
+                simbolos++;
+            }
+        }
+
+        try (DataOutputStream salida = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporal), 1 << 16))) {
+            salida.writeInt(MAGICO);
+
+            salida.writeInt(archivos);
+            for (int archivo = 0; archivo < rutas.size(); archivo++) {
+                String ruta = rutas.get(archivo);
+                if (ruta != null) {
+                    salida.writeUTF(ruta);
+                    salida.writeLong(firmas.get(archivo)[0]);
+                    salida.writeLong(firmas.get(archivo)[1]);
+                }
+            }
+
+            salida.writeInt(simbolos);
+            for (int simbolo = 0; simbolo < pool.tamano(); simbolo++) {
+                Posiciones lista = posiciones[simbolo];
+                if (lista.tamano == 0) {
+                    continue;
+                }
+                salida.writeUTF(pool.nombre(simbolo));
+                salida.writeInt(lista.tamano);
+                for (int i = 0; i < lista.tamano * 3; i += 3) {
+                    salida.writeInt(nuevoNumero[lista.datos[i]]);
+                    salida.writeInt(lista.datos[i + 1]);
+                    salida.writeInt(lista.datos[i + 2]);
+                }
+            }
+        }
+
+        Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Carga un índice guardado con guardar()
+     */
+    public static IndiceInvertido cargar(Path origen) throws IOException {
+        IndiceInvertido indice = new IndiceInvertido();
+
+        try (DataInputStream entrada = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(origen), 1 << 16))) {
+            if (entrada.readInt() != MAGICO) {
+                throw new IOException("El archivo no es un índice válido: " + origen);
+            }
+
+            int archivos = entrada.readInt();
+            for (int archivo = 0; archivo < archivos; archivo++) {
+                String ruta = entrada.readUTF();
+                indice.numeroArchivo.put(ruta, archivo);
+                indice.rutas.add(ruta);
+                indice.firmas.add(new long[] { entrada.readLong(), entrada.readLong() });
+                indice.simbolosPorArchivo.add(null);
+            }
+
+            List<BitSet> usados = new ArrayList<>();
+            for (int archivo = 0; archivo < archivos; archivo++) {
+                usados.add(new BitSet());
+            }
+
+            int simbolos = entrada.readInt();
+            for (int i = 0; i < simbolos; i++) {
+                int simbolo = indice.simbolo(entrada.readUTF());
+                int cantidad = entrada.readInt();
+                for (int j = 0; j < cantidad; j++) {
+                    int archivo = entrada.readInt();
+                    indice.posiciones[simbolo].agregar(archivo, entrada.readInt(), entrada.readInt());
+                    usados.get(archivo).set(simbolo);
+                }
+            }
+
+            for (int archivo = 0; archivo < archivos; archivo++) {
+                indice.simbolosPorArchivo.set(archivo, usados.get(archivo).stream().toArray());
+            }
+        }
+        return indice;
+    }
+
+    private int simbolo(CharSequence codigo, int inicio, int fin) {
+        int tamanoAnterior = pool.tamano();
+        int simbolo = AnalizadorJava.internar(pool, codigo, inicio, fin);
+        if (pool.tamano() != tamanoAnterior) {
+            if (simbolo == posiciones.length) {
+                posiciones = Arrays.copyOf(posiciones, posiciones.length * 2);
+            }
+            posiciones[simbolo] = new Posiciones();
+            ordenVigente = false;
+        }
+        return simbolo;
+    }
+
+    private int simbolo(String nombre) {
+        return simbolo(nombre, 0, nombre.length());
+    }
+
+    private void quitarPosiciones(int archivo) {
+        int[] simbolos = simbolosPorArchivo.get(archivo);
+        if (simbolos != null) {
+            for (int simbolo : simbolos) {
+                posiciones[simbolo].quitarArchivo(archivo);
+            }
+        }
+    }
+
+    private void agregarFilas(List<Object[]> filas, int simbolo, boolean conNombre) {
+        Posiciones lista = posiciones[simbolo];
+        for (int i = 0; i < lista.tamano * 3; i += 3) {
+            String ruta = rutas.get(lista.datos[i]);
+            if (conNombre) {
+                filas.add(new Object[] { pool.nombre(simbolo), ruta, lista.datos[i + 1], lista.datos[i + 2] });
+            } else {
+                filas.add(new Object[] { ruta, lista.datos[i + 1], lista.datos[i + 2] });
+            }
+        }
+    }
+
+    /**
+     * Pone al día los símbolos ordenados. Como el pool sólo crece, se ordenan
+     * los nombres de los símbolos nuevos y se mezclan con los que ya estaban
+     * ordenados.
+     */
+    private void ordenar() {
+        if (ordenVigente) {
+            return;
+        }
+        int anteriores = ordenados.length;
+        String[] nuevos = new String[pool.tamano() - anteriores];
+        for (int i = 0; i < nuevos.length; i++) {
+            nuevos[i] = pool.nombre(anteriores + i);
+        }
+        Arrays.sort(nuevos);
+
+        int[] mezcla = new int[pool.tamano()];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < mezcla.length; k++) {
+            if (j == nuevos.length || (i < anteriores && pool.nombre(ordenados[i]).compareTo(nuevos[j]) <= 0)) {
+                mezcla[k] = ordenados[i++];
+            } else {
+                mezcla[k] = pool.buscar(nuevos[j++]);
+            }
+        }
+        ordenados = mezcla;
+        ordenVigente = true;
+    }
+
+    private static String clave(Path archivo) {
+        return archivo.toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Lista de posiciones de un símbolo guardada como ternas (archivo, línea,
+     * columna) en un arreglo de enteros
+     */
+    private static class Posiciones {
+        int[] datos = new int[6];
+        int tamano;
+
+        void agregar(int archivo, int linea, int columna) {
+            if ((tamano + 1) * 3 > datos.length) {
+                datos = Arrays.copyOf(datos, datos.length * 2);
+            }
+            datos[tamano * 3] = archivo;
+            datos[tamano * 3 + 1] = linea;
+            datos[tamano * 3 + 2] = columna;
+            tamano++;
+        }
+
+        void quitarArchivo(int archivo) {
+            int destino = 0;
+            for (int i = 0; i < tamano * 3; i += 3) {
+                if (datos[i] != archivo) {
+                    datos[destino] = datos[i];
+                    datos[destino + 1] = datos[i + 1];
+                    datos[destino + 2] = datos[i + 2];
+                    destino += 3;
+                }
+            }
+            tamano = destino / 3;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+import java.util.Arrays;
+
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Modelo de la tabla de tokens que guarda sólo el tipo y las posiciones de
+ * cada token en arreglos primitivos. Los textos de las celdas se construyen
+ * cuando la tabla los pide, leyendo el mismo código que se analizó, así que
+ * millones de tokens de un archivo mapeado no crean un objeto cada uno.
+ *
+ * Las filas son las mismas que producen AnalizadorJava.procesarParaTabla y
+ * AnalizadorRobot.procesarParaTabla.
+ */
+public class ModeloTablaTokens extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String[] COLUMNAS_JAVA = { "TOKEN", "TIPO", "LINEA" };
+    private static final String[] COLUMNAS_ROBOT = { "TOKEN", "TIPO", "VALOR", "PARAMETRO" };
+
+    private static final AnalizadorJava.TipoToken[] TIPOS_JAVA = AnalizadorJava.TipoToken.values();
+    private static final AnalizadorRobot.TipoToken[] TIPOS_ROBOT = AnalizadorRobot.TipoToken.values();
+
+    // Marca de un método seguido de paréntesis vacíos, en iniciosValor
+    private static final int SIN_PARAMETROS = -2;
+
+    // Estados al unir un método de robot con lo que lo sigue
+    private static final int NORMAL = 0;
+    private static final int DESPUES_DE_METODO = 1;
+    private static final int DESPUES_DE_PARENTESIS = 2;
+    private static final int DESPUES_DE_IGUAL = 3;
+
+    private final CharSequence codigo;
+    private final boolean robot;
+
+    private byte[] tipos = new byte[1024];
+    private int[] inicios = new int[1024];
+    private int[] fines = new int[1024];
+    private int[] lineas = new int[1024];
+    // Sólo en robot: rango del valor asignado a un método
+    private int[] iniciosValor;
+    private int[] finesValor;
+    private int filas;
+
+    // Token de robot que todavía no se sabe si forma parte de un método
+    private int estado = NORMAL;
+    private int filaMetodo;
+    private int inicioPendiente;
+    private int finPendiente;
+    private int lineaPendiente;
+
+    /**
+     * @param codigo Código que se va a analizar, que debe seguir disponible
+     *               mientras se use el modelo
+     * @param robot  true para tokens de robot, false para tokens de Java
+     */
+    public ModeloTablaTokens(CharSequence codigo, boolean robot) {
+        this.codigo = codigo;
+        this.robot = robot;
+        if (robot) {
+            iniciosValor = new int[tipos.length];
+            finesValor = new int[tipos.length];
+        }
+    }
+
+    /**
+     * Analiza un código Java y devuelve el modelo con sus tokens
+     */
+    public static ModeloTablaTokens analizarJava(CharSequence codigo) {
+        ModeloTablaTokens modelo = new ModeloTablaTokens(codigo, false);
+        AnalizadorJava.analizar(codigo, modelo.receptorJava());
+        modelo.terminar();
+        return modelo;
+    }
+
+    /**
+     * Analiza un programa de robot y devuelve el modelo con sus tokens
+     */
+    public static ModeloTablaTokens analizarRobot(CharSequence codigo) {
+        ModeloTablaTokens modelo = new ModeloTablaTokens(codigo, true);
+        AnalizadorRobot.analizar(codigo, modelo.receptorRobot());
+        modelo.terminar();
+        return modelo;
+    }
+
+    /**
+     * Receptor que agrega los tokens Java al modelo
+     */
+    public AnalizadorJava.ReceptorTokens receptorJava() {
+        return (tipo, fuente, inicio, fin, linea, columna) -> agregar(tipo.ordinal(), inicio, fin, linea);
+    }
+
+    /**
+     * Receptor que agrega los tokens de robot al modelo, uniendo cada método con
+     * sus paréntesis o su valor como lo hace AnalizadorRobot.procesarParaTabla
+     */
+    public AnalizadorRobot.ReceptorTokens receptorRobot() {
+        return (tipo, fuente, inicio, fin, linea, columna) -> agregarRobot(tipo, inicio, fin, linea);
+    }
+
+    /**
+     * Agrega las filas que quedaron pendientes y avisa a la tabla. Se llama
+     * después de terminar el análisis.
+     */
+    public void terminar() {
+        if (estado == DESPUES_DE_PARENTESIS) {
+            agregarPendiente(AnalizadorRobot.TipoToken.PARENTESIS_IZQ);
+        } else if (estado == DESPUES_DE_IGUAL) {
+            agregarPendiente(AnalizadorRobot.TipoToken.IGUAL);
+        }
+        estado = NORMAL;
+        fireTableDataChanged();
+    }
+
+    private void agregarRobot(AnalizadorRobot.TipoToken tipo, int inicio, int fin, int linea) {
+        switch (estado) {
+            case DESPUES_DE_METODO:
+                if (tipo == AnalizadorRobot.TipoToken.PARENTESIS_IZQ
+                        || tipo == AnalizadorRobot.TipoToken.IGUAL) {
+                    estado = tipo == AnalizadorRobot.TipoToken.IGUAL ? DESPUES_DE_IGUAL : DESPUES_DE_PARENTESIS;
+                    inicioPendiente = inicio;
+                    finPendiente = fin;
+                    lineaPendiente = linea;
+                    return;
+                }
+                break;
+            case DESPUES_DE_PARENTESIS:
+                if (tipo == AnalizadorRobot.TipoToken.PARENTESIS_DER) {
+                    iniciosValor[filaMetodo] = SIN_PARAMETROS;
+                    estado = NORMAL;
+                    return;
+                }
+                agregarPendiente(AnalizadorRobot.TipoToken.PARENTESIS_IZQ);
+                break;
+            case DESPUES_DE_IGUAL:
+                if (tipo == AnalizadorRobot.TipoToken.NUMERO) {
+                    iniciosValor[filaMetodo] = inicio;
+                    finesValor[filaMetodo] = fin;
+                    estado = NORMAL;
+                    return;
+                }
+                agregarPendiente(AnalizadorRobot.TipoToken.IGUAL);
+                break;
+            default:
+                break;
+        }
+
+        estado = NORMAL;
+        // Los puntos no se muestran
+        if (tipo != AnalizadorRobot.TipoToken.PUNTO) {
+            agregar(tipo.ordinal(), inicio, fin, linea);
+            if (tipo == AnalizadorRobot.TipoToken.METODO) {
+                filaMetodo = filas - 1;
+                estado = DESPUES_DE_METODO;
+            }
+        }
+    }
+
+    private void agregarPendiente(AnalizadorRobot.TipoToken tipo) {
+        agregar(tipo.ordinal(), inicioPendiente, finPendiente, lineaPendiente);
+    }
+
+    private void agregar(int tipo, int inicio, int fin, int linea) {
+        if (filas == tipos.length) {
+            int capacidad = filas + (filas >> 1);
+            tipos = Arrays.copyOf(tipos, capacidad);
+            inicios = Arrays.copyOf(inicios, capacidad);
+            fines = Arrays.copyOf(fines, capacidad);
+            lineas = Arrays.copyOf(lineas, capacidad);
+            if (robot) {
+                iniciosValor = Arrays.copyOf(iniciosValor, capacidad);
+                finesValor = Arrays.copyOf(finesValor, capacidad);
+            }
+        }
+
+        tipos[filas] = (byte) tipo;
+        inicios[filas] = inicio;
+        fines[filas] = fin;
+        lineas[filas] = linea;
+        if (robot) {
+            iniciosValor[filas] = -1;
+        }
+        filas++;
+    }
+
+    /**
+     * Posición del token de una fila en el código
+     */
+    public int getInicio(int fila) {
+        return inicios[fila];
+    }
+
+    @Override
+    public int getRowCount() {
+        return filas;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return robot ? COLUMNAS_ROBOT.length : COLUMNAS_JAVA.length;
+    }
+
+    @Override
+    public String getColumnName(int columna) {
+        return robot ? COLUMNAS_ROBOT[columna] : COLUMNAS_JAVA[columna];
+    }
+
+    @Override
+    public Object getValueAt(int fila, int columna) {
+        if (robot) {
+            return valorRobot(TIPOS_ROBOT[tipos[fila]], fila, columna);
+        }
+
+        AnalizadorJava.TipoToken tipo = TIPOS_JAVA[tipos[fila]];
+        switch (columna) {
+            case 0:
+                return AnalizadorJava.lexema(tipo, codigo, inicios[fila], fines[fila]);
+            case 1:
+                return tipo.getDescripcion();
+            default:
+                return lineas[fila];
+        }
+    }
+
+    private Object valorRobot(AnalizadorRobot.TipoToken tipo, int fila, int columna) {
+        int inicioValor = iniciosValor[fila];
+        switch (columna) {
+            case 0: {
+                String lexema = AnalizadorRobot.lexema(tipo, codigo, inicios[fila], fines[fila]);
+                return inicioValor == SIN_PARAMETROS ? lexema + "()" : lexema;
+            }
+            case 1:
+                return tipo.getDescripcion();
+            case 2:
+                if (inicioValor >= 0) {
+                    return codigo.subSequence(inicioValor, finesValor[fila]).toString();
+                }
+                return tipo == AnalizadorRobot.TipoToken.NUMERO && inicioValor != SIN_PARAMETROS
+                        ? codigo.subSequence(inicios[fila], fines[fila]).toString()
+                        : "";
+            default:
+                if (inicioValor == SIN_PARAMETROS) {
+                    return "No";
+                }
+                return inicioValor >= 0 ? "Si" : "";
+        }
+    }
+}
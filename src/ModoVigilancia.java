@@ -0,0 +1,348 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Modo de vigilancia: mantiene al día los resultados del análisis de un
+ * directorio de código Java volviendo a analizar sólo los archivos que
+ * cambian.
+ *
+ * Los eventos de WatchService se agrupan hasta que pasa un tiempo de espera
+ * sin cambios, para no analizar varias veces un archivo durante una ráfaga de
+ * escrituras. Un archivo se vuelve a analizar sólo si cambió su tamaño o su
+ * fecha de modificación y además su contenido tiene un hash distinto.
+ */
+public class ModoVigilancia implements Closeable {
+
+    /**
+     * Estado conocido de un archivo analizado
+     */
+    private static class EstadoArchivo {
+        long tamano;
+        long modificado;
+        long hash;
+        EstadisticasTokens estadisticas;
+    }
+
+    private final Path raiz;
+    private final long esperaMs;
+    private final WatchService vigilante;
+    private final Map<WatchKey, Path> directorios = new HashMap<>();
+    private final Set<Path> registrados = new HashSet<>();
+    private final Map<Path, EstadoArchivo> archivos = new HashMap<>();
+    private final EstadisticasTokens total = new EstadisticasTokens();
+    private IndiceInvertido indice;
+    private Consumer<List<Path>> oyente;
+
+    /**
+     * @param raiz     Directorio a vigilar, incluyendo sus subdirectorios
+     * @param esperaMs Tiempo sin eventos que se espera antes de procesar una
+     *                 ráfaga de cambios
+     */
+    public ModoVigilancia(Path raiz, long esperaMs) throws IOException {
+        this.raiz = raiz.toAbsolutePath().normalize();
+        this.esperaMs = esperaMs;
+        this.vigilante = FileSystems.getDefault().newWatchService();
+    }
+
+    /**
+     * Índice que se actualiza junto con las estadísticas (opcional)
+     */
+    public void setIndice(IndiceInvertido indice) {
+        this.indice = indice;
+    }
+
+    /**
+     * Función que recibe los archivos que se volvieron a analizar en cada ráfaga
+     */
+    public void setOyente(Consumer<List<Path>> oyente) {
+        this.oyente = oyente;
+    }
+
+    /**
+     * Estadísticas combinadas de todos los archivos vigilados
+     */
+    public EstadisticasTokens getTotal() {
+        return total;
+    }
+
+    /**
+     * Estadísticas de un archivo, o null si no se ha analizado
+     */
+    public EstadisticasTokens getEstadisticas(Path archivo) {
+        EstadoArchivo estado = archivos.get(archivo.toAbsolutePath().normalize());
+        return estado == null ? null : estado.estadisticas;
+    }
+
+    public int getArchivos() {
+        return archivos.size();
+    }
+
+    /**
+     * Registra los directorios y analiza todos los archivos que hayan cambiado.
+     * Se usa al iniciar y cuando el sistema pierde eventos.
+     *
+     * @return Archivos que se volvieron a analizar
+     */
+    public List<Path> escanearTodo() throws IOException {
+        registrar(raiz);
+
+        List<Path> analizados = new ArrayList<>();
+        Set<Path> existentes = new LinkedHashSet<>(listarArchivos(raiz));
+        for (Path archivo : existentes) {
+            if (revisarSinFallar(archivo)) {
+                analizados.add(archivo);
+            }
+        }
+
+        // Archivos que desaparecieron mientras no se recibían eventos
+        for (Iterator<Path> it = archivos.keySet().iterator(); it.hasNext();) {
+            Path archivo = it.next();
+            if (!existentes.contains(archivo)) {
+                descontar(archivo, archivos.get(archivo));
+                it.remove();
+                analizados.add(archivo);
+            }
+        }
+        return analizados;
+    }
+
+    /**
+     * Vigila el directorio hasta que se cierre o se interrumpa el hilo
+     */
+    public void vigilar() throws IOException, InterruptedException {
+        notificar(escanearTodo());
+
+        try {
+            while (true) {
+                WatchKey clave = vigilante.take();
+                Set<Path> pendientes = new LinkedHashSet<>();
+                boolean desbordado = recolectar(clave, pendientes);
+
+                // Seguir juntando eventos mientras la ráfaga continúe
+                while ((clave = vigilante.poll(esperaMs, TimeUnit.MILLISECONDS)) != null) {
+                    desbordado |= recolectar(clave, pendientes);
+                }
+
+                notificar(desbordado ? escanearTodo() : procesar(pendientes));
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Se cerró el modo de vigilancia
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        vigilante.close();
+    }
+
+    /**
+     * Registra un directorio y sus subdirectorios en el WatchService
+     */
+    private void registrar(Path directorio) throws IOException {
+        try (Stream<Path> recorrido = Files.walk(directorio)) {
+            for (Path dir : recorrido.filter(Files::isDirectory).collect(Collectors.toList())) {
+                if (registrados.add(dir)) {
+                    WatchKey clave = dir.register(vigilante, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                    directorios.put(clave, dir);
+                }
+            }
+        }
+    }
+
+    /**
+     * Junta las rutas de los eventos de una clave
+     *
+     * @return true si se perdieron eventos y hay que revisar todo
+     */
+    private boolean recolectar(WatchKey clave, Set<Path> pendientes) {
+        Path directorio = directorios.get(clave);
+        boolean desbordado = false;
+
+        for (WatchEvent<?> evento : clave.pollEvents()) {
+            if (evento.kind() == StandardWatchEventKinds.OVERFLOW) {
+                desbordado = true;
+                continue;
+            }
+            if (directorio == null) {
+                continue;
+            }
+
+            Path ruta = directorio.resolve((Path) evento.context());
+            if (evento.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(ruta)) {
+                registrarSinFallar(ruta, pendientes);
+            } else {
+                pendientes.add(ruta);
+            }
+        }
+
+        if (!clave.reset()) {
+            registrados.remove(directorios.remove(clave));
+        }
+        return desbordado;
+    }
+
+    /**
+     * Registra un directorio nuevo y agrega a los pendientes los archivos que
+     * ya tiene, porque puede llegar con archivos copiados. Si se elimina o se
+     * renombra mientras se recorre, se omite como los archivos que desaparecen
+     * al leerlos: lo que haya quedado llega con sus propios eventos.
+     */
+    private void registrarSinFallar(Path directorio, Set<Path> pendientes) {
+        try {
+            registrar(directorio);
+            pendientes.addAll(listarArchivos(directorio));
+        } catch (NoSuchFileException e) {
+            // Se eliminó antes de recorrerlo
+        } catch (IOException e) {
+            System.err.println("Error al registrar " + directorio + ": " + e.getMessage());
+        } catch (UncheckedIOException e) {
+            // Files.walk informa así lo que desaparece durante el recorrido
+            if (!(e.getCause() instanceof NoSuchFileException)) {
+                System.err.println("Error al registrar " + directorio + ": " + e.getCause().getMessage());
+            }
+        }
+    }
+
+    /**
+     * Procesa las rutas de una ráfaga de eventos
+     *
+     * @return Archivos que se volvieron a analizar o se eliminaron
+     */
+    private List<Path> procesar(Set<Path> pendientes) throws IOException {
+        List<Path> analizados = new ArrayList<>();
+
+        for (Path ruta : pendientes) {
+            if (Files.isRegularFile(ruta)) {
+                if (esFuente(ruta) && revisarSinFallar(ruta)) {
+                    analizados.add(ruta);
+                }
+                continue;
+            }
+
+            // Se eliminó un archivo o un directorio completo
+            for (Iterator<Map.Entry<Path, EstadoArchivo>> it = archivos.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<Path, EstadoArchivo> entrada = it.next();
+                if (entrada.getKey().startsWith(ruta) && !Files.exists(entrada.getKey())) {
+                    descontar(entrada.getKey(), entrada.getValue());
+                    it.remove();
+                    analizados.add(entrada.getKey());
+                }
+            }
+        }
+        return analizados;
+    }
+
+    /**
+     * Igual que revisar(), pero un error al leer el archivo se informa y no
+     * detiene la vigilancia: el archivo conserva su estado anterior y se vuelve
+     * a intentar con su próximo evento
+     *
+     * @return true si se volvió a analizar
+     */
+    private boolean revisarSinFallar(Path archivo) {
+        try {
+            return revisar(archivo);
+        } catch (NoSuchFileException e) {
+            // Se eliminó mientras se leía; llegará su evento de borrado
+            return false;
+        } catch (IOException e) {
+            System.err.println("Error al analizar " + archivo + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Vuelve a analizar un archivo si su contenido cambió
+     *
+     * @return true si se volvió a analizar
+     */
+    private boolean revisar(Path archivo) throws IOException {
+        long tamano = Files.size(archivo);
+        long modificado = Files.getLastModifiedTime(archivo).toMillis();
+        EstadoArchivo estado = archivos.get(archivo);
+
+        if (estado != null && estado.tamano == tamano && estado.modificado == modificado) {
+            return false;
+        }
+
+        byte[] contenido = Files.readAllBytes(archivo);
+        CRC32 crc = new CRC32();
+        crc.update(contenido, 0, contenido.length);
+
+        // Se tocó el archivo pero su contenido es el mismo
+        if (estado != null && estado.tamano == contenido.length && estado.hash == crc.getValue()) {
+            estado.modificado = modificado;
+            return false;
+        }
+
+        String codigo = new String(contenido, StandardCharsets.UTF_8);
+        EstadisticasTokens estadisticas = new EstadisticasTokens();
+        estadisticas.agregarJava(codigo);
+
+        if (estado == null) {
+            estado = new EstadoArchivo();
+            archivos.put(archivo, estado);
+        } else {
+            total.restar(estado.estadisticas);
+        }
+        total.fusionar(estadisticas);
+
+        estado.tamano = contenido.length;
+        estado.modificado = modificado;
+        estado.hash = crc.getValue();
+        estado.estadisticas = estadisticas;
+
+        if (indice != null) {
+            indice.indexar(archivo.toString(), codigo, contenido.length, modificado);
+        }
+        return true;
+    }
+
+    private void descontar(Path archivo, EstadoArchivo estado) {
+        total.restar(estado.estadisticas);
+        if (indice != null) {
+            indice.eliminar(archivo);
+        }
+    }
+
+    private void notificar(List<Path> analizados) {
+        if (oyente != null && !analizados.isEmpty()) {
+            oyente.accept(analizados);
+        }
+    }
+
+    private static List<Path> listarArchivos(Path directorio) throws IOException {
+        try (Stream<Path> recorrido = Files.walk(directorio)) {
+            return recorrido.filter(p -> Files.isRegularFile(p) && esFuente(p)).collect(Collectors.toList());
+        }
+    }
+
+    private static boolean esFuente(Path archivo) {
+        return archivo.toString().endsWith(".java");
+    }
+}
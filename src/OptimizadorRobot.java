@@ -0,0 +1,190 @@
+import java.util.Arrays;
+
+/**
+ * Optimizador de programas de robot. Elimina los comandos que no tienen un
+ * efecto observable en el brazo:
+ * - Asignaciones que repiten el valor que la propiedad ya tiene
+ *   (r1.velocidad=50 dos veces)
+ * - Asignaciones que se sobrescriben antes de que algo las use. Una posición
+ *   (base, cuerpo, garra) se usa con la siguiente acción del robot; la
+ *   velocidad, con el siguiente movimiento o acción
+ * - abrirGarra() con la garra abierta y cerrarGarra() con la garra cerrada
+ * - abrirGarra() seguido de inmediato por cerrarGarra() (o al revés), que
+ *   deja la garra como estaba
+ *
+ * iniciar() y finalizar() nunca se eliminan. La garra empieza abierta, como en
+ * SimuladorRobot; las posiciones y la velocidad empiezan desconocidas.
+ */
+public class OptimizadorRobot {
+
+    // Propiedades que se siguen por robot
+    private static final int BASE = 0;
+    private static final int CUERPO = 1;
+    private static final int GARRA = 2;
+    private static final int VELOCIDAD = 3;
+    private static final int PROPIEDADES = 4;
+
+    private static final int DESCONOCIDO = Integer.MIN_VALUE;
+
+    /**
+     * Resultado de optimizar un programa
+     */
+    public static class Resultado {
+        private final ProgramaRobot programa;
+        private final int eliminados;
+
+        public Resultado(ProgramaRobot programa, int eliminados) {
+            this.programa = programa;
+            this.eliminados = eliminados;
+        }
+
+        /**
+         * Programa con los comandos que se conservaron
+         */
+        public ProgramaRobot getPrograma() {
+            return programa;
+        }
+
+        /**
+         * Cantidad de comandos eliminados
+         */
+        public int getEliminados() {
+            return eliminados;
+        }
+    }
+
+    /**
+     * Compila y optimiza el código de un programa
+     */
+    public static Resultado optimizar(CharSequence codigo) {
+        return optimizar(ProgramaRobot.compilar(codigo));
+    }
+
+    /**
+     * Optimiza un programa compilado
+     *
+     * @param programa Programa original, que no se modifica
+     * @return Programa minimizado y cantidad de comandos eliminados
+     */
+    public static Resultado optimizar(ProgramaRobot programa) {
+        int robots = programa.robots().tamano();
+        boolean[] eliminado = new boolean[programa.tamano()];
+
+        // Estado de cada robot, PROPIEDADES casillas por robot
+        int[] valor = new int[robots * PROPIEDADES];
+        int[] valorAnterior = new int[robots * PROPIEDADES];
+        int[] pendiente = new int[robots * PROPIEDADES];
+        Arrays.fill(valor, DESCONOCIDO);
+        Arrays.fill(pendiente, -1);
+
+        boolean[] garraCerrada = new boolean[robots];
+        int[] ultimoComando = new int[robots];
+        Arrays.fill(ultimoComando, -1);
+
+        for (int comando = 0; comando < programa.tamano(); comando++) {
+            int robot = programa.robot(comando);
+            int base = robot * PROPIEDADES;
+            ProgramaRobot.Operacion operacion = programa.operacion(comando);
+
+            switch (operacion) {
+                case BASE:
+                case CUERPO:
+                case GARRA:
+                case VELOCIDAD: {
+                    int casilla = base + propiedad(operacion);
+
+                    // La asignación anterior no llegó a usarse
+                    if (pendiente[casilla] >= 0) {
+                        eliminado[pendiente[casilla]] = true;
+                        valor[casilla] = valorAnterior[casilla];
+                        pendiente[casilla] = -1;
+                    }
+
+                    if (programa.valor(comando) == valor[casilla]) {
+                        eliminado[comando] = true;
+                    } else {
+                        valorAnterior[casilla] = valor[casilla];
+                        valor[casilla] = programa.valor(comando);
+                        pendiente[casilla] = comando;
+                    }
+
+                    // Un movimiento usa la velocidad asignada
+                    if (operacion != ProgramaRobot.Operacion.VELOCIDAD) {
+                        pendiente[base + VELOCIDAD] = -1;
+                    }
+                    break;
+                }
+                case ABRIR_GARRA:
+                case CERRAR_GARRA: {
+                    boolean cerrar = operacion == ProgramaRobot.Operacion.CERRAR_GARRA;
+                    int anterior = ultimoComando[robot];
+
+                    if (garraCerrada[robot] == cerrar) {
+                        // La garra ya está en ese estado
+                        eliminado[comando] = true;
+                    } else if (anterior >= 0 && !eliminado[anterior] && esGarra(programa.operacion(anterior))) {
+                        // Abrir y cerrar seguidos deja la garra como estaba
+                        eliminado[anterior] = true;
+                        eliminado[comando] = true;
+                        garraCerrada[robot] = cerrar;
+                    } else {
+                        garraCerrada[robot] = cerrar;
+                        usarPendientes(pendiente, base);
+                    }
+                    break;
+                }
+                case INICIAR:
+                case FINALIZAR:
+                    usarPendientes(pendiente, base);
+                    break;
+                default:
+                    break;
+            }
+
+            if (!eliminado[comando] && operacion != ProgramaRobot.Operacion.DECLARAR) {
+                ultimoComando[robot] = comando;
+            }
+        }
+
+        // Construir el programa con los comandos que quedaron
+        ProgramaRobot minimo = new ProgramaRobot();
+        for (int robot = 0; robot < robots; robot++) {
+            minimo.robots().internar(programa.robots(), robot);
+        }
+
+        int eliminados = 0;
+        for (int comando = 0; comando < programa.tamano(); comando++) {
+            if (eliminado[comando]) {
+                eliminados++;
+            } else {
+                minimo.agregar(programa.operacion(comando), programa.robot(comando), programa.valor(comando),
+                        programa.linea(comando));
+            }
+        }
+        return new Resultado(minimo, eliminados);
+    }
+
+    /**
+     * Una acción usa todas las asignaciones pendientes del robot
+     */
+    private static void usarPendientes(int[] pendiente, int base) {
+        Arrays.fill(pendiente, base, base + PROPIEDADES, -1);
+    }
+
+    private static boolean esGarra(ProgramaRobot.Operacion operacion) {
+        return operacion == ProgramaRobot.Operacion.ABRIR_GARRA || operacion == ProgramaRobot.Operacion.CERRAR_GARRA;
+    }
+
+    private static int propiedad(ProgramaRobot.Operacion operacion) {
+        switch (operacion) {
+            case BASE:
+                return BASE;
+            case CUERPO:
+                return CUERPO;
+            case GARRA:
+                return GARRA;
+            default:
+                return VELOCIDAD;
+        }
+    }
+}
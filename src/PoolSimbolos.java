@@ -0,0 +1,188 @@
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Pool de símbolos que asigna a cada identificador distinto un número entero
+ * consecutivo (0, 1, 2...). La búsqueda se hace con una tabla de
+ * direccionamiento abierto sobre rangos de caracteres del código fuente, de
+ * modo que internar un identificador ya conocido no crea ningún objeto.
+ *
+ * Los caracteres de cada símbolo se copian una sola vez a un arreglo
+ * compartido y su String se construye sólo cuando se pide con nombre().
+ * Una instancia no es segura entre hilos.
+ */
+public class PoolSimbolos {
+
+    // Índice + 1 del símbolo guardado en cada casilla (0 = vacía)
+    private int[] casillas;
+    private int[] hashes;
+    private int[] inicios;
+    private int[] longitudes;
+    private String[] nombres;
+    private char[] caracteres;
+    private int usados;
+    private int tamano;
+
+    public PoolSimbolos() {
+        this(32);
+    }
+
+    /**
+     * @param capacidad Cantidad de símbolos distintos esperada
+     */
+    public PoolSimbolos(int capacidad) {
+        int capacidadInicial = Math.max(8, capacidad);
+        casillas = new int[Integer.highestOneBit(capacidadInicial * 2 - 1) * 2];
+        hashes = new int[capacidadInicial];
+        inicios = new int[capacidadInicial];
+        longitudes = new int[capacidadInicial];
+        nombres = new String[capacidadInicial];
+        caracteres = new char[capacidadInicial * 8];
+    }
+
+    /**
+     * Devuelve el número del símbolo formado por el rango de caracteres,
+     * agregándolo al pool si es la primera vez que aparece
+     *
+     * @param codigo Texto que contiene el símbolo
+     * @param inicio Posición del primer carácter
+     * @param fin    Posición siguiente al último carácter
+     * @return Número del símbolo
+     */
+    public int internar(CharSequence codigo, int inicio, int fin) {
+        int hash = AnalizadorJava.hashRango(codigo, inicio, fin);
+        int mascara = casillas.length - 1;
+
+        for (int i = mezclar(hash) & mascara;; i = (i + 1) & mascara) {
+            int simbolo = casillas[i] - 1;
+            if (simbolo < 0) {
+                simbolo = agregar(hash, codigo, inicio, fin);
+                casillas[i] = simbolo + 1;
+                if (tamano * 2 > casillas.length) {
+                    redimensionar();
+                }
+                return simbolo;
+            }
+            if (hashes[simbolo] == hash && esIgual(simbolo, codigo, inicio, fin)) {
+                return simbolo;
+            }
+        }
+    }
+
+    public int internar(String nombre) {
+        return internar(nombre, 0, nombre.length());
+    }
+
+    /**
+     * Agrega a este pool un símbolo de otro pool
+     *
+     * @return Número del símbolo en este pool
+     */
+    public int internar(PoolSimbolos otro, int simbolo) {
+        return internar(CharBuffer.wrap(otro.caracteres), otro.inicios[simbolo],
+                otro.inicios[simbolo] + otro.longitudes[simbolo]);
+    }
+
+    /**
+     * Busca un símbolo sin agregarlo
+     *
+     * @return Número del símbolo o -1 si no está en el pool
+     */
+    public int buscar(CharSequence codigo, int inicio, int fin) {
+        int hash = AnalizadorJava.hashRango(codigo, inicio, fin);
+        int mascara = casillas.length - 1;
+
+        for (int i = mezclar(hash) & mascara; casillas[i] != 0; i = (i + 1) & mascara) {
+            int simbolo = casillas[i] - 1;
+            if (hashes[simbolo] == hash && esIgual(simbolo, codigo, inicio, fin)) {
+                return simbolo;
+            }
+        }
+        return -1;
+    }
+
+    public int buscar(String nombre) {
+        return buscar(nombre, 0, nombre.length());
+    }
+
+    /**
+     * Devuelve el texto del símbolo. El String se crea la primera vez y luego se
+     * comparte entre todos los tokens que lo usan.
+     */
+    public String nombre(int simbolo) {
+        String nombre = nombres[simbolo];
+        if (nombre == null) {
+            nombre = new String(caracteres, inicios[simbolo], longitudes[simbolo]);
+            nombres[simbolo] = nombre;
+        }
+        return nombre;
+    }
+
+    public int longitud(int simbolo) {
+        return longitudes[simbolo];
+    }
+
+    public char caracter(int simbolo, int indice) {
+        return caracteres[inicios[simbolo] + indice];
+    }
+
+    /**
+     * Cantidad de símbolos distintos en el pool
+     */
+    public int tamano() {
+        return tamano;
+    }
+
+    private int agregar(int hash, CharSequence codigo, int inicio, int fin) {
+        int longitud = fin - inicio;
+        if (tamano == hashes.length) {
+            int capacidad = tamano * 2;
+            hashes = Arrays.copyOf(hashes, capacidad);
+            inicios = Arrays.copyOf(inicios, capacidad);
+            longitudes = Arrays.copyOf(longitudes, capacidad);
+            nombres = Arrays.copyOf(nombres, capacidad);
+        }
+        if (usados + longitud > caracteres.length) {
+            caracteres = Arrays.copyOf(caracteres, Math.max(caracteres.length * 2, usados + longitud));
+        }
+        for (int i = 0; i < longitud; i++) {
+            caracteres[usados + i] = codigo.charAt(inicio + i);
+        }
+
+        hashes[tamano] = hash;
+        inicios[tamano] = usados;
+        longitudes[tamano] = longitud;
+        usados += longitud;
+        return tamano++;
+    }
+
+    private boolean esIgual(int simbolo, CharSequence codigo, int inicio, int fin) {
+        if (longitudes[simbolo] != fin - inicio) {
+            return false;
+        }
+        int base = inicios[simbolo];
+        for (int i = 0; i < fin - inicio; i++) {
+            if (caracteres[base + i] != codigo.charAt(inicio + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void redimensionar() {
+        casillas = new int[casillas.length * 2];
+        int mascara = casillas.length - 1;
+        for (int simbolo = 0; simbolo < tamano; simbolo++) {
+            int i = mezclar(hashes[simbolo]) & mascara;
+            while (casillas[i] != 0) {
+                i = (i + 1) & mascara;
+            }
+            casillas[i] = simbolo + 1;
+        }
+    }
+
+    // Dispersa los bits altos del hash, que String.hashCode concentra poco
+    private static int mezclar(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
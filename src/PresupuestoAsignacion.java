@@ -0,0 +1,199 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Prueba de regresión de asignación de memoria en los analizadores. Mide los
+ * bytes asignados por token y por carácter de entrada al analizar corpus
+ * fijos y falla si alguno supera el presupuesto registrado.
+ *
+ * Sirve para detectar que alguien vuelva a crear objetos por carácter en los
+ * ciclos de análisis (por ejemplo, concatenar Strings para comparar
+ * operadores). Usa com.sun.management.ThreadMXBean, disponible en HotSpot.
+ *
+ * Uso: java PresupuestoAsignacion (termina con código 1 si hay regresiones)
+ */
+public class PresupuestoAsignacion {
+
+    private static final int REPETICIONES = 20;
+    private static final int CALENTAMIENTO = 30;
+
+    /**
+     * Caso medido con su presupuesto
+     */
+    private static class Caso {
+        final String nombre;
+        final String corpus;
+        final double maxPorToken;
+        final double maxPorCaracter;
+        final Medible medible;
+
+        Caso(String nombre, String corpus, double maxPorToken, double maxPorCaracter, Medible medible) {
+            this.nombre = nombre;
+            this.corpus = corpus;
+            this.maxPorToken = maxPorToken;
+            this.maxPorCaracter = maxPorCaracter;
+            this.medible = medible;
+        }
+    }
+
+    /**
+     * Operación a medir; devuelve la cantidad de tokens producidos
+     */
+    private interface Medible {
+        int ejecutar(String corpus);
+    }
+
+    // Contador usado por los receptores que no construyen tokens
+    private static int contados;
+
+    private static final AnalizadorJava.ReceptorTokens CONTADOR_JAVA = (tipo, codigo, inicio, fin, linea,
+            columna) -> contados++;
+
+    private static final AnalizadorRobot.ReceptorTokens CONTADOR_ROBOT = (tipo, codigo, inicio, fin, linea,
+            columna) -> contados++;
+
+    /**
+     * Presupuestos registrados. Los análisis en flujo y las instancias
+     * reutilizadas no deben asignar memoria por token; los que devuelven listas
+     * pagan el Token, su lexema y la copia de la entrada; con filtro, sólo los
+     * de los tokens que se devuelven. Se deja un margen sobre lo medido para no
+     * fallar por variaciones entre versiones de la JVM. Los valores
+     * corresponden a una JVM de 64 bits con referencias comprimidas, la
+     * configuración por defecto.
+     */
+    private static List<Caso> casos() {
+        String java = corpusJava();
+        String robot = corpusRobot();
+        List<Caso> casos = new ArrayList<>();
+
+        casos.add(new Caso("AnalizadorJava.analizar(CharSequence, receptor)", java, 0.5, 0.1, corpus -> {
+            contados = 0;
+            AnalizadorJava.analizar(corpus, CONTADOR_JAVA);
+            return contados;
+        }));
+        final AnalizadorJava analizadorJava = new AnalizadorJava();
+        casos.add(new Caso("AnalizadorJava.reset (instancia reutilizada)", java, 0.5, 0.1,
+                corpus -> analizadorJava.reset(corpus)));
+        casos.add(new Caso("AnalizadorJava.analizar(String)", java, 102, 25,
+                corpus -> AnalizadorJava.analizar(corpus).size()));
+        casos.add(new Caso("AnalizadorJava.analizar(String, IDENTIFICADOR, LEXEMA)", java, 117, 6.2,
+                corpus -> AnalizadorJava.analizar(corpus, EnumSet.of(AnalizadorJava.TipoToken.IDENTIFICADOR),
+                        EnumSet.of(AnalizadorJava.Campo.LEXEMA)).size()));
+        casos.add(new Caso("AnalizadorRobot.analizar(CharSequence, receptor)", robot, 0.5, 0.1, corpus -> {
+            contados = 0;
+            AnalizadorRobot.analizar(corpus, CONTADOR_ROBOT);
+            return contados;
+        }));
+        final AnalizadorRobot analizadorRobot = new AnalizadorRobot();
+        casos.add(new Caso("AnalizadorRobot.reset (instancia reutilizada)", robot, 0.5, 0.1,
+                corpus -> analizadorRobot.reset(corpus)));
+        casos.add(new Caso("AnalizadorRobot.analizar(String)", robot, 111, 33,
+                corpus -> AnalizadorRobot.analizar(corpus).size()));
+        return casos;
+    }
+
+    /**
+     * Corpus Java fijo con todos los tipos de token
+     */
+    private static String corpusJava() {
+        StringBuilder codigo = new StringBuilder();
+        for (int i = 0; i < 400; i++) {
+            codigo.append("public class Ejemplo").append(i).append(" {\n")
+                    .append("    // Comentario de una línea ").append(i).append('\n')
+                    .append("    /* Comentario\n       multilinea */\n")
+                    .append("    public static void main(String[] args) {\n")
+                    .append("        int x = ").append(i).append(";\n")
+                    .append("        double y = 3.14 * x;\n")
+                    .append("        char c = 'a';\n")
+                    .append("        String s = \"texto \\\"").append(i).append("\\\"\";\n")
+                    .append("        if (x >= 5 && y != 0 || x <= -1) {\n")
+                    .append("            x += 2; x -= 1; x *= 3; x /= 2; x %= 7; x <<= 1;\n")
+                    .append("            x++; x--; x = x >> 1 ^ 3 | 4 & ~5;\n")
+                    .append("        } else {\n")
+                    .append("            y = x == 0 ? 1 : 2;\n")
+                    .append("        }\n")
+                    .append("    }\n")
+                    .append("}\n");
+        }
+        return codigo.toString();
+    }
+
+    /**
+     * Corpus de robot fijo con todos los comandos
+     */
+    private static String corpusRobot() {
+        StringBuilder codigo = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            codigo.append("Robot r").append(i).append('\n')
+                    .append('r').append(i).append(".iniciar()\n")
+                    .append('r').append(i).append(".velocidad=").append(i % 100).append('\n')
+                    .append('r').append(i).append(".base=").append(i % 360).append("\r\n")
+                    .append('r').append(i).append(".cuerpo=45\n")
+                    .append('r').append(i).append(".garra=90\n")
+                    .append('r').append(i).append(".cerrarGarra()\n")
+                    .append('r').append(i).append(".abrirGarra()\n")
+                    .append('r').append(i).append(".finalizar()\n");
+        }
+        return codigo.toString();
+    }
+
+    /**
+     * Mide los bytes asignados por el hilo actual al ejecutar un caso
+     *
+     * @return {bytes por token, bytes por carácter}
+     */
+    private static double[] medir(Caso caso) {
+        com.sun.management.ThreadMXBean hilos = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long hilo = Thread.currentThread().getId();
+
+        // Calentar para que el JIT compile y elimine los objetos temporales
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            caso.medible.ejecutar(caso.corpus);
+        }
+
+        long tokens = 0;
+        long antes = hilos.getThreadAllocatedBytes(hilo);
+        for (int i = 0; i < REPETICIONES; i++) {
+            tokens += caso.medible.ejecutar(caso.corpus);
+        }
+        long asignados = hilos.getThreadAllocatedBytes(hilo) - antes;
+
+        return new double[] {
+                (double) asignados / Math.max(1, tokens),
+                (double) asignados / ((long) caso.corpus.length() * REPETICIONES)
+        };
+    }
+
+    /**
+     * Método principal: mide todos los casos y reporta los que exceden su
+     * presupuesto
+     */
+    public static void main(String[] args) {
+        int fallas = 0;
+
+        System.out.println(String.format("%-55s %12s %12s %s", "CASO", "B/TOKEN", "B/CARACTER", "RESULTADO"));
+        for (Caso caso : casos()) {
+            double[] medicion = medir(caso);
+            boolean excede = medicion[0] > caso.maxPorToken || medicion[1] > caso.maxPorCaracter;
+            if (excede) {
+                fallas++;
+            }
+
+            System.out.println(String.format("%-55s %7.2f/%-4s %7.2f/%-4s %s", caso.nombre,
+                    medicion[0], formato(caso.maxPorToken), medicion[1], formato(caso.maxPorCaracter),
+                    excede ? "EXCEDE" : "OK"));
+        }
+
+        if (fallas > 0) {
+            System.out.println(fallas + " casos exceden su presupuesto de asignación");
+            System.exit(1);
+        }
+    }
+
+    private static String formato(double valor) {
+        return valor == Math.rint(valor) ? String.valueOf((long) valor) : String.valueOf(valor);
+    }
+}
@@ -0,0 +1,312 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Programa de robot compilado a partir de los tokens de AnalizadorRobot. Cada
+ * comando se guarda en arreglos paralelos (operación, robot, valor, línea) en
+ * lugar de objetos, para poder procesar muchos programas con poca memoria.
+ *
+ * Los robots se identifican por su número en un PoolSimbolos propio del
+ * programa.
+ */
+public class ProgramaRobot {
+
+    /**
+     * Operaciones que puede contener un programa
+     */
+    public enum Operacion {
+        DECLARAR("Robot"),
+        INICIAR("iniciar"),
+        FINALIZAR("finalizar"),
+        ABRIR_GARRA("abrirGarra"),
+        CERRAR_GARRA("cerrarGarra"),
+        BASE("base"),
+        CUERPO("cuerpo"),
+        GARRA("garra"),
+        VELOCIDAD("velocidad");
+
+        private final String nombre;
+
+        Operacion(String nombre) {
+            this.nombre = nombre;
+        }
+
+        public String getNombre() {
+            return nombre;
+        }
+
+        /**
+         * Indica si la operación asigna un valor a una propiedad del brazo
+         */
+        public boolean esAsignacion() {
+            return ordinal() >= BASE.ordinal();
+        }
+
+        /**
+         * Busca la operación con el nombre indicado en un rango del código
+         *
+         * @return La operación o null si el nombre no corresponde a ninguna
+         */
+        static Operacion buscar(CharSequence codigo, int inicio, int fin) {
+            for (Operacion operacion : OPERACIONES) {
+                if (operacion != DECLARAR && AnalizadorJava.rangoIgual(operacion.nombre, codigo, inicio, fin)) {
+                    return operacion;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final Operacion[] OPERACIONES = Operacion.values();
+
+    private final PoolSimbolos robots = new PoolSimbolos(4);
+    private final List<String> errores = new ArrayList<>();
+    private byte[] operaciones = new byte[16];
+    private int[] numerosRobot = new int[16];
+    private int[] valores = new int[16];
+    private int[] lineas = new int[16];
+    private int tamano;
+
+    /**
+     * Compila el código de un programa de robot
+     *
+     * @param codigo Código fuente del programa
+     * @return Programa con los comandos reconocidos y los errores de sintaxis
+     */
+    public static ProgramaRobot compilar(CharSequence codigo) {
+        ProgramaRobot programa = new ProgramaRobot();
+        Compilador compilador = programa.new Compilador();
+        AnalizadorRobot.analizar(codigo, compilador);
+        compilador.terminar();
+        return programa;
+    }
+
+    /**
+     * Agrega un comando al final del programa
+     *
+     * @param robot Número del robot en robots()
+     */
+    public void agregar(Operacion operacion, int robot, int valor, int linea) {
+        if (tamano == operaciones.length) {
+            int capacidad = tamano * 2;
+            operaciones = Arrays.copyOf(operaciones, capacidad);
+            numerosRobot = Arrays.copyOf(numerosRobot, capacidad);
+            valores = Arrays.copyOf(valores, capacidad);
+            lineas = Arrays.copyOf(lineas, capacidad);
+        }
+        operaciones[tamano] = (byte) operacion.ordinal();
+        numerosRobot[tamano] = robot;
+        valores[tamano] = valor;
+        lineas[tamano] = linea;
+        tamano++;
+    }
+
+    /**
+     * Cantidad de comandos del programa
+     */
+    public int tamano() {
+        return tamano;
+    }
+
+    public Operacion operacion(int comando) {
+        return OPERACIONES[operaciones[comando]];
+    }
+
+    public int robot(int comando) {
+        return numerosRobot[comando];
+    }
+
+    public int valor(int comando) {
+        return valores[comando];
+    }
+
+    public int linea(int comando) {
+        return lineas[comando];
+    }
+
+    /**
+     * Pool con los nombres de los robots del programa
+     */
+    public PoolSimbolos robots() {
+        return robots;
+    }
+
+    /**
+     * Errores de sintaxis encontrados al compilar
+     */
+    public List<String> getErrores() {
+        return errores;
+    }
+
+    /**
+     * Escribe el comando en la sintaxis del lenguaje de robots
+     */
+    public String comoTexto(int comando) {
+        Operacion operacion = operacion(comando);
+        String robot = robots.nombre(robot(comando));
+
+        if (operacion == Operacion.DECLARAR) {
+            return "Robot " + robot;
+        }
+        if (operacion.esAsignacion()) {
+            return robot + "." + operacion.getNombre() + "=" + valor(comando);
+        }
+        return robot + "." + operacion.getNombre() + "()";
+    }
+
+    /**
+     * Escribe el programa completo, un comando por línea
+     */
+    public String comoTexto() {
+        StringBuilder texto = new StringBuilder();
+        for (int comando = 0; comando < tamano; comando++) {
+            if (comando > 0) {
+                texto.append('\n');
+            }
+            texto.append(comoTexto(comando));
+        }
+        return texto.toString();
+    }
+
+    private void error(int linea, String mensaje) {
+        errores.add(String.format("Línea %d: %s", linea, mensaje));
+    }
+
+    /**
+     * Reconoce los comandos a partir de los tokens:
+     * Robot r1 | r1.accion() | r1.metodo=numero
+     * Los paréntesis de las acciones son opcionales.
+     */
+    private class Compilador implements AnalizadorRobot.ReceptorTokens {
+        private static final int INICIO = 0;
+        private static final int ESPERA_NOMBRE = 1;
+        private static final int ESPERA_PUNTO = 2;
+        private static final int ESPERA_COMANDO = 3;
+        private static final int ESPERA_PARENTESIS = 4;
+        private static final int ESPERA_CIERRE = 5;
+        private static final int ESPERA_IGUAL = 6;
+        private static final int ESPERA_NUMERO = 7;
+
+        private int estado = INICIO;
+        private int robot;
+        private Operacion operacion;
+        private int lineaComando;
+        private int lineaDescartada = -1;
+
+        @Override
+        public void token(AnalizadorRobot.TipoToken tipo, CharSequence codigo, int inicio, int fin, int linea,
+                int columna) {
+            // Después de un error se ignora el resto de la línea
+            if (linea == lineaDescartada) {
+                return;
+            }
+
+            switch (estado) {
+                case ESPERA_NOMBRE:
+                    if (tipo == AnalizadorRobot.TipoToken.IDENTIFICADOR) {
+                        agregar(Operacion.DECLARAR, robots.internar(codigo, inicio, fin), 0, lineaComando);
+                        estado = INICIO;
+                        return;
+                    }
+                    break;
+                case ESPERA_PUNTO:
+                    if (tipo == AnalizadorRobot.TipoToken.PUNTO) {
+                        estado = ESPERA_COMANDO;
+                        return;
+                    }
+                    break;
+                case ESPERA_COMANDO:
+                    if (tipo == AnalizadorRobot.TipoToken.ACCION || tipo == AnalizadorRobot.TipoToken.METODO) {
+                        operacion = Operacion.buscar(codigo, inicio, fin);
+                        if (operacion == null) {
+                            descartarLinea(linea, "método desconocido " + codigo.subSequence(inicio, fin));
+                            estado = INICIO;
+                        } else if (operacion.esAsignacion()) {
+                            estado = ESPERA_IGUAL;
+                        } else {
+                            agregar(operacion, robot, 0, lineaComando);
+                            estado = ESPERA_PARENTESIS;
+                        }
+                        return;
+                    }
+                    break;
+                case ESPERA_PARENTESIS:
+                    if (tipo == AnalizadorRobot.TipoToken.PARENTESIS_IZQ) {
+                        estado = ESPERA_CIERRE;
+                        return;
+                    }
+                    // Acción sin paréntesis: el token empieza otro comando
+                    estado = INICIO;
+                    break;
+                case ESPERA_CIERRE:
+                    if (tipo == AnalizadorRobot.TipoToken.PARENTESIS_DER) {
+                        estado = INICIO;
+                        return;
+                    }
+                    break;
+                case ESPERA_IGUAL:
+                    if (tipo == AnalizadorRobot.TipoToken.IGUAL) {
+                        estado = ESPERA_NUMERO;
+                        return;
+                    }
+                    break;
+                case ESPERA_NUMERO:
+                    if (tipo == AnalizadorRobot.TipoToken.NUMERO) {
+                        agregar(operacion, robot, numero(codigo, inicio, fin), lineaComando);
+                        estado = INICIO;
+                        return;
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            if (estado != INICIO) {
+                estado = INICIO;
+                if (linea == lineaComando) {
+                    descartarLinea(linea, "token inesperado " + AnalizadorRobot.lexema(tipo, codigo, inicio, fin));
+                    return;
+                }
+                // El comando anterior quedó a medias y este token empieza otro
+                error(lineaComando, "comando incompleto");
+            }
+
+            // Inicio de un comando
+            lineaComando = linea;
+            if (tipo == AnalizadorRobot.TipoToken.PALABRA_R) {
+                estado = ESPERA_NOMBRE;
+            } else if (tipo == AnalizadorRobot.TipoToken.IDENTIFICADOR) {
+                robot = robots.internar(codigo, inicio, fin);
+                estado = ESPERA_PUNTO;
+            } else {
+                descartarLinea(linea, "token inesperado " + AnalizadorRobot.lexema(tipo, codigo, inicio, fin));
+            }
+        }
+
+        private void descartarLinea(int linea, String mensaje) {
+            error(linea, mensaje);
+            lineaDescartada = linea;
+        }
+
+        /**
+         * Reporta el comando que quedó a medias al terminar el código. Una acción
+         * sin paréntesis ya está completa.
+         */
+        void terminar() {
+            if (estado != INICIO && estado != ESPERA_PARENTESIS) {
+                error(lineaComando, "comando incompleto");
+            }
+        }
+
+        // Convierte el número sin crear un String; los valores muy grandes se
+        // limitan a Integer.MAX_VALUE
+        private int numero(CharSequence codigo, int inicio, int fin) {
+            long valor = 0;
+            for (int i = inicio; i < fin && valor <= Integer.MAX_VALUE; i++) {
+                valor = valor * 10 + Character.digit(codigo.charAt(i), 10);
+            }
+            return (int) Math.min(valor, Integer.MAX_VALUE);
+        }
+    }
+}
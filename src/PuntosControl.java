@@ -0,0 +1,164 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Puntos de control de un código Java para obtener los tokens de una región
+ * sin analizar todo lo anterior. Durante una primera pasada completa se
+ * guarda, cada cierta cantidad de caracteres, la posición, la línea y la
+ * columna del primer token que empieza después; luego el análisis de una
+ * región se retoma desde el último punto anterior a ella, así que cuesta lo
+ * que mide la región más, como mucho, un intervalo.
+ *
+ * Los puntos son siempre inicios de token: el analizador consume cada
+ * comentario y cada literal completo antes de pasar al siguiente token, de
+ * modo que en esas posiciones nunca está dentro de uno y basta con la línea y
+ * la columna para retomar.
+ */
+public class PuntosControl {
+
+    /**
+     * Caracteres entre puntos de control por defecto
+     */
+    public static final int INTERVALO = 64 * 1024;
+
+    private final int intervalo;
+
+    private CharSequence codigo;
+    private int[] posiciones = new int[16];
+    private int[] lineas = new int[16];
+    private int[] columnas = new int[16];
+    private int puntos;
+    private int proximo;
+
+    public PuntosControl() {
+        this(INTERVALO);
+    }
+
+    /**
+     * @param intervalo Caracteres entre puntos de control
+     */
+    public PuntosControl(int intervalo) {
+        if (intervalo <= 0) {
+            throw new IllegalArgumentException("El intervalo debe ser positivo: " + intervalo);
+        }
+        this.intervalo = intervalo;
+        agregar(0, 1, 1);
+        proximo = intervalo;
+    }
+
+    /**
+     * Analiza un código completo guardando sus puntos de control
+     */
+    public static PuntosControl marcar(CharSequence codigo, int intervalo) {
+        PuntosControl puntosControl = new PuntosControl(intervalo);
+        AnalizadorJava.analizar(codigo, puntosControl.receptor());
+        return puntosControl;
+    }
+
+    public static PuntosControl marcar(CharSequence codigo) {
+        return marcar(codigo, INTERVALO);
+    }
+
+    /**
+     * Receptor que guarda los puntos de control durante la primera pasada
+     */
+    public AnalizadorJava.ReceptorTokens receptor() {
+        return this::token;
+    }
+
+    /**
+     * Receptor que guarda los puntos de control y luego pasa cada token a otro
+     * receptor, para marcar el código en la misma pasada que otro consumidor
+     */
+    public AnalizadorJava.ReceptorTokens receptor(final AnalizadorJava.ReceptorTokens siguiente) {
+        return (tipo, fuente, inicio, fin, linea, columna) -> {
+            token(tipo, fuente, inicio, fin, linea, columna);
+            siguiente.token(tipo, fuente, inicio, fin, linea, columna);
+        };
+    }
+
+    private void token(AnalizadorJava.TipoToken tipo, CharSequence fuente, int inicio, int fin, int linea,
+            int columna) {
+        codigo = fuente;
+        if (inicio >= proximo) {
+            agregar(inicio, linea, columna);
+            proximo = inicio + intervalo;
+        }
+    }
+
+    private void agregar(int posicion, int linea, int columna) {
+        if (puntos == posiciones.length) {
+            int capacidad = puntos * 2;
+            posiciones = Arrays.copyOf(posiciones, capacidad);
+            lineas = Arrays.copyOf(lineas, capacidad);
+            columnas = Arrays.copyOf(columnas, capacidad);
+        }
+        posiciones[puntos] = posicion;
+        lineas[puntos] = linea;
+        columnas[puntos] = columna;
+        puntos++;
+    }
+
+    /**
+     * Notifica los tokens que ocupan algún carácter del rango, incluidos los
+     * que empiezan antes y terminan dentro
+     *
+     * @param desde    Primera posición del rango
+     * @param hasta    Posición siguiente a la última del rango
+     * @param receptor Receptor que recibe los tokens en orden
+     */
+    public void tokens(final int desde, int hasta, final AnalizadorJava.ReceptorTokens receptor) {
+        if (codigo == null || desde >= hasta) {
+            return;
+        }
+
+        // Un token que empieza antes del punto termina antes del punto, así que
+        // todos los que tocan el rango empiezan en el punto o después
+        int punto = puntoAntes(desde);
+        AnalizadorJava.analizar(codigo, posiciones[punto], hasta, lineas[punto], columnas[punto],
+                (tipo, fuente, inicio, fin, linea, columna) -> {
+                    if (fin > desde) {
+                        receptor.token(tipo, fuente, inicio, fin, linea, columna);
+                    }
+                });
+    }
+
+    /**
+     * Tokens que ocupan algún carácter del rango
+     */
+    public List<AnalizadorJava.Token> tokens(int desde, int hasta) {
+        final List<AnalizadorJava.Token> tokens = new ArrayList<>();
+        tokens(desde, hasta, (tipo, fuente, inicio, fin, linea, columna) -> tokens.add(
+                new AnalizadorJava.Token(tipo, AnalizadorJava.lexema(tipo, fuente, inicio, fin), linea, columna)));
+        return tokens;
+    }
+
+    /**
+     * Último punto de control en la posición indicada o antes
+     */
+    public int puntoAntes(int posicion) {
+        int punto = Arrays.binarySearch(posiciones, 0, puntos, posicion);
+        return punto >= 0 ? punto : Math.max(0, -punto - 2);
+    }
+
+    public int getPuntos() {
+        return puntos;
+    }
+
+    public int getIntervalo() {
+        return intervalo;
+    }
+
+    public int posicion(int punto) {
+        return posiciones[punto];
+    }
+
+    public int linea(int punto) {
+        return lineas[punto];
+    }
+
+    public int columna(int punto) {
+        return columnas[punto];
+    }
+}
@@ -0,0 +1,293 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simulador del brazo robótico. Ejecuta programas compilados con
+ * ProgramaRobot y reporta las violaciones a las reglas del brazo:
+ * - Un robot debe declararse (Robot r1) antes de usarse
+ * - Ningún comando puede ir antes de iniciar() ni después de finalizar()
+ * - base 0-360, cuerpo 0-180, garra 0-90 y velocidad 0-100
+ * - No se puede mover el brazo con velocidad 0
+ * - No se puede abrir una garra abierta ni cerrar una garra cerrada
+ * - Todo robot iniciado debe finalizar
+ *
+ * El estado de los robots se guarda en un arreglo de enteros (CAMPOS enteros
+ * por robot) que se reutiliza entre programas. Una instancia no es segura
+ * entre hilos; simularEnParalelo() usa una por hilo.
+ */
+public class SimuladorRobot {
+
+    // Valores máximos permitidos (el mínimo es 0)
+    public static final int BASE_MAX = 360;
+    public static final int CUERPO_MAX = 180;
+    public static final int GARRA_MAX = 90;
+    public static final int VELOCIDAD_MAX = 100;
+
+    // Campos del estado de cada robot
+    private static final int BANDERAS = 0;
+    private static final int BASE = 1;
+    private static final int CUERPO = 2;
+    private static final int GARRA = 3;
+    private static final int VELOCIDAD = 4;
+    private static final int CAMPOS = 5;
+
+    // Bits del campo BANDERAS
+    private static final int DECLARADO = 1;
+    private static final int INICIADO = 2;
+    private static final int FINALIZADO = 4;
+    private static final int GARRA_CERRADA = 8;
+
+    private int[] estado = new int[CAMPOS * 4];
+    private int robots;
+
+    /**
+     * Resultado de simular un programa
+     */
+    public static class Resultado {
+        private final int comandos;
+        private final List<String> violaciones;
+
+        public Resultado(int comandos, List<String> violaciones) {
+            this.comandos = comandos;
+            this.violaciones = violaciones;
+        }
+
+        public boolean esValido() {
+            return violaciones.isEmpty();
+        }
+
+        public int getComandos() {
+            return comandos;
+        }
+
+        public List<String> getViolaciones() {
+            return violaciones;
+        }
+    }
+
+    /**
+     * Compila y simula el código de un programa. Los errores de sintaxis se
+     * reportan como violaciones.
+     */
+    public Resultado simular(CharSequence codigo) {
+        ProgramaRobot programa = ProgramaRobot.compilar(codigo);
+        Resultado resultado = simular(programa);
+
+        if (programa.getErrores().isEmpty()) {
+            return resultado;
+        }
+        List<String> violaciones = new ArrayList<>(programa.getErrores());
+        violaciones.addAll(resultado.getViolaciones());
+        return new Resultado(resultado.getComandos(), violaciones);
+    }
+
+    /**
+     * Simula un programa completo desde el estado inicial
+     */
+    public Resultado simular(ProgramaRobot programa) {
+        List<String> violaciones = null;
+
+        reiniciar(programa.robots().tamano());
+        for (int comando = 0; comando < programa.tamano(); comando++) {
+            violaciones = ejecutar(programa, comando, violaciones);
+        }
+        violaciones = terminar(programa, violaciones);
+
+        return new Resultado(programa.tamano(),
+                violaciones == null ? Collections.<String>emptyList() : violaciones);
+    }
+
+    /**
+     * Deja todos los robots en su estado inicial: sin declarar, sin iniciar,
+     * garra abierta y todos los valores en 0
+     *
+     * @param cantidad Cantidad de robots que se van a simular
+     */
+    public void reiniciar(int cantidad) {
+        if (cantidad * CAMPOS > estado.length) {
+            estado = new int[cantidad * CAMPOS * 2];
+        } else {
+            Arrays.fill(estado, 0, robots * CAMPOS, 0);
+        }
+        robots = cantidad;
+    }
+
+    /**
+     * Ejecuta un comando sobre el estado actual
+     *
+     * @param violaciones Lista donde se agregan las violaciones; puede ser null
+     * @return La lista de violaciones, creada sólo si hizo falta
+     */
+    public List<String> ejecutar(ProgramaRobot programa, int comando, List<String> violaciones) {
+        ProgramaRobot.Operacion operacion = programa.operacion(comando);
+        int robot = programa.robot(comando);
+        int base = robot * CAMPOS;
+        int banderas = estado[base + BANDERAS];
+
+        if (operacion == ProgramaRobot.Operacion.DECLARAR) {
+            if ((banderas & DECLARADO) != 0) {
+                violaciones = violacion(violaciones, programa, comando, "el robot ya estaba declarado");
+            }
+            estado[base + BANDERAS] = banderas | DECLARADO;
+            return violaciones;
+        }
+
+        if ((banderas & DECLARADO) == 0) {
+            violaciones = violacion(violaciones, programa, comando, "el robot no está declarado");
+        }
+        if ((banderas & FINALIZADO) != 0) {
+            violaciones = violacion(violaciones, programa, comando, "comando después de finalizar");
+        } else if (operacion == ProgramaRobot.Operacion.INICIAR) {
+            if ((banderas & INICIADO) != 0) {
+                violaciones = violacion(violaciones, programa, comando, "el robot ya estaba iniciado");
+            }
+        } else if ((banderas & INICIADO) == 0) {
+            violaciones = violacion(violaciones, programa, comando, "comando antes de iniciar");
+        }
+
+        switch (operacion) {
+            case INICIAR:
+                banderas |= INICIADO;
+                break;
+            case FINALIZAR:
+                banderas |= FINALIZADO;
+                break;
+            case ABRIR_GARRA:
+                if ((banderas & GARRA_CERRADA) == 0) {
+                    violaciones = violacion(violaciones, programa, comando, "la garra ya está abierta");
+                }
+                banderas &= ~GARRA_CERRADA;
+                break;
+            case CERRAR_GARRA:
+                if ((banderas & GARRA_CERRADA) != 0) {
+                    violaciones = violacion(violaciones, programa, comando, "la garra ya está cerrada");
+                }
+                banderas |= GARRA_CERRADA;
+                break;
+            case BASE:
+                violaciones = mover(programa, comando, base + BASE, BASE_MAX, violaciones);
+                break;
+            case CUERPO:
+                violaciones = mover(programa, comando, base + CUERPO, CUERPO_MAX, violaciones);
+                break;
+            case GARRA:
+                violaciones = mover(programa, comando, base + GARRA, GARRA_MAX, violaciones);
+                break;
+            case VELOCIDAD:
+                violaciones = asignar(programa, comando, base + VELOCIDAD, VELOCIDAD_MAX, violaciones);
+                break;
+            default:
+                break;
+        }
+
+        estado[base + BANDERAS] = banderas;
+        return violaciones;
+    }
+
+    /**
+     * Revisa que todos los robots iniciados hayan finalizado
+     */
+    public List<String> terminar(ProgramaRobot programa, List<String> violaciones) {
+        for (int robot = 0; robot < robots; robot++) {
+            int banderas = estado[robot * CAMPOS + BANDERAS];
+            if ((banderas & INICIADO) != 0 && (banderas & FINALIZADO) == 0) {
+                if (violaciones == null) {
+                    violaciones = new ArrayList<>();
+                }
+                violaciones.add(programa.robots().nombre(robot) + ": el programa termina sin finalizar");
+            }
+        }
+        return violaciones;
+    }
+
+    public int getBase(int robot) {
+        return estado[robot * CAMPOS + BASE];
+    }
+
+    public int getCuerpo(int robot) {
+        return estado[robot * CAMPOS + CUERPO];
+    }
+
+    public int getGarra(int robot) {
+        return estado[robot * CAMPOS + GARRA];
+    }
+
+    public int getVelocidad(int robot) {
+        return estado[robot * CAMPOS + VELOCIDAD];
+    }
+
+    public boolean isGarraCerrada(int robot) {
+        return (estado[robot * CAMPOS + BANDERAS] & GARRA_CERRADA) != 0;
+    }
+
+    /**
+     * Simula muchos programas en paralelo. Cada hilo usa su propio simulador y
+     * toma el siguiente programa pendiente.
+     *
+     * @param programas Código de cada programa
+     * @param hilos     Cantidad de hilos de trabajo
+     * @return Resultado de cada programa, en el mismo orden
+     */
+    public static Resultado[] simularEnParalelo(final List<? extends CharSequence> programas, int hilos)
+            throws InterruptedException {
+        final Resultado[] resultados = new Resultado[programas.size()];
+        final AtomicInteger siguiente = new AtomicInteger();
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        List<Future<?>> tareas = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < hilos; i++) {
+                tareas.add(ejecutor.submit(() -> {
+                    SimuladorRobot simulador = new SimuladorRobot();
+                    for (int j = siguiente.getAndIncrement(); j < programas.size(); j = siguiente.getAndIncrement()) {
+                        resultados[j] = simulador.simular(programas.get(j));
+                    }
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            ejecutor.shutdownNow();
+        }
+        return resultados;
+    }
+
+    private List<String> mover(ProgramaRobot programa, int comando, int campo, int maximo,
+            List<String> violaciones) {
+        if (estado[programa.robot(comando) * CAMPOS + VELOCIDAD] == 0) {
+            violaciones = violacion(violaciones, programa, comando, "movimiento con velocidad 0");
+        }
+        return asignar(programa, comando, campo, maximo, violaciones);
+    }
+
+    private List<String> asignar(ProgramaRobot programa, int comando, int campo, int maximo,
+            List<String> violaciones) {
+        int valor = programa.valor(comando);
+        if (valor < 0 || valor > maximo) {
+            return violacion(violaciones, programa, comando,
+                    String.format("valor %d fuera de rango (0-%d)", valor, maximo));
+        }
+        estado[campo] = valor;
+        return violaciones;
+    }
+
+    private static List<String> violacion(List<String> violaciones, ProgramaRobot programa, int comando,
+            String mensaje) {
+        if (violaciones == null) {
+            violaciones = new ArrayList<>();
+        }
+        violaciones.add(String.format("Línea %d: %s: %s", programa.linea(comando), programa.comoTexto(comando),
+                mensaje));
+        return violaciones;
+    }
+}
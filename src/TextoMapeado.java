@@ -0,0 +1,302 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Texto de un archivo mapeado en memoria, visto como CharSequence para que los
+ * analizadores lo recorran sin copiarlo a un String. El archivo se mapea en
+ * bloques de 1 GB y el sistema operativo carga las páginas a medida que se
+ * leen.
+ *
+ * El archivo se interpreta como UTF-8, igual que al leerlo a un String. Al
+ * mapearlo se recorre una vez para ubicar los tramos de bytes no ASCII: cada
+ * tramo se decodifica y se guardan sus caracteres, mientras que el texto ASCII
+ * entre tramos se sigue leyendo directamente del mapeo. Un archivo sólo ASCII
+ * no ocupa memoria adicional. Los bytes inválidos se ven como U+FFFD. El
+ * tamaño máximo es Integer.MAX_VALUE bytes.
+ */
+public class TextoMapeado implements CharSequence {
+
+    /**
+     * Tamaño a partir del cual conviene mapear un archivo en lugar de leerlo a
+     * un String
+     */
+    public static final long UMBRAL = 8L * 1024 * 1024;
+
+    private static final int BITS_BLOQUE = 30;
+    private static final int MASCARA_BLOQUE = (1 << BITS_BLOQUE) - 1;
+
+    private final MappedByteBuffer[] bloques;
+    private final int longitud;
+
+    // Tramos de bytes no ASCII: carácter donde empieza cada uno, carácter y
+    // byte donde termina, y posición de sus caracteres decodificados
+    private int[] iniciosTramo = new int[0];
+    private int[] finesTramo = new int[0];
+    private int[] finesByte = new int[0];
+    private int[] desdeValor = new int[0];
+    private char[] valores = new char[0];
+    private int tramos;
+
+    // Último rango consultado, para no buscar el tramo en cada carácter de un
+    // recorrido secuencial
+    private Ventana ventana = new Ventana(0, 0, 0, null, null);
+
+    /**
+     * Rango de caracteres que se leen con el mismo desplazamiento, ya sea de un
+     * bloque del mapeo (texto ASCII entre tramos) o de los caracteres
+     * decodificados. Es inmutable para que varios hilos puedan compartir la
+     * última.
+     */
+    private static final class Ventana {
+        final int inicio;
+        final int fin;
+        final int desplazamiento;
+        final MappedByteBuffer bytes;
+        final char[] caracteres;
+
+        Ventana(int inicio, int fin, int desplazamiento, MappedByteBuffer bytes, char[] caracteres) {
+            this.inicio = inicio;
+            this.fin = fin;
+            this.desplazamiento = desplazamiento;
+            this.bytes = bytes;
+            this.caracteres = caracteres;
+        }
+    }
+
+    // Posición de inicio de cada línea, calculada la primera vez que se pide
+    private int[] iniciosLinea;
+    private int lineas;
+
+    /**
+     * Mapea un archivo completo en modo de solo lectura
+     */
+    public TextoMapeado(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            if (tamano > Integer.MAX_VALUE) {
+                throw new IOException("El archivo es demasiado grande para mapearlo: " + tamano + " bytes");
+            }
+
+            bloques = new MappedByteBuffer[(int) ((tamano + MASCARA_BLOQUE) >>> BITS_BLOQUE)];
+            for (int i = 0; i < bloques.length; i++) {
+                long inicio = (long) i << BITS_BLOQUE;
+                bloques[i] = canal.map(FileChannel.MapMode.READ_ONLY, inicio, Math.min(1L << BITS_BLOQUE,
+                        tamano - inicio));
+            }
+        }
+        longitud = decodificar();
+    }
+
+    /**
+     * Ubica y decodifica los tramos de bytes no ASCII. Como en UTF-8 ningún
+     * byte de un carácter de varios bytes es ASCII, cada tramo se decodifica
+     * por separado con el mismo resultado que el archivo completo.
+     *
+     * @return Cantidad de caracteres del texto
+     */
+    private int decodificar() {
+        byte[] pendientes = new byte[64];
+        int cantidad = 0;
+        int caracter = 0;
+
+        for (int bloque = 0; bloque < bloques.length; bloque++) {
+            MappedByteBuffer bytes = bloques[bloque];
+            int base = bloque << BITS_BLOQUE;
+            int limite = bytes.limit();
+            for (int i = 0; i < limite; i++) {
+                byte valor = bytes.get(i);
+                if (valor >= 0) {
+                    if (cantidad > 0) {
+                        caracter = agregarTramo(pendientes, cantidad, caracter, base + i);
+                        cantidad = 0;
+                    }
+                    caracter++;
+                } else {
+                    if (cantidad == pendientes.length) {
+                        pendientes = Arrays.copyOf(pendientes, cantidad * 2);
+                    }
+                    pendientes[cantidad++] = valor;
+                }
+            }
+        }
+        if (cantidad > 0) {
+            int bytes = bloques.length == 0 ? 0 : ((bloques.length - 1) << BITS_BLOQUE)
+                    + bloques[bloques.length - 1].limit();
+            caracter = agregarTramo(pendientes, cantidad, caracter, bytes);
+        }
+
+        valores = Arrays.copyOf(valores, valoresUsados());
+        return caracter;
+    }
+
+    /**
+     * Decodifica un tramo de bytes no ASCII que termina en el byte finByte
+     *
+     * @return Carácter siguiente al tramo
+     */
+    private int agregarTramo(byte[] bytes, int cantidad, int caracter, int finByte) {
+        String decodificado = new String(bytes, 0, cantidad, StandardCharsets.UTF_8);
+        int usados = valoresUsados();
+        if (tramos == iniciosTramo.length) {
+            int capacidad = Math.max(16, tramos * 2);
+            iniciosTramo = Arrays.copyOf(iniciosTramo, capacidad);
+            finesTramo = Arrays.copyOf(finesTramo, capacidad);
+            finesByte = Arrays.copyOf(finesByte, capacidad);
+            desdeValor = Arrays.copyOf(desdeValor, capacidad);
+        }
+        if (usados + decodificado.length() > valores.length) {
+            valores = Arrays.copyOf(valores, Math.max(usados + decodificado.length(), valores.length * 2));
+        }
+
+        decodificado.getChars(0, decodificado.length(), valores, usados);
+        iniciosTramo[tramos] = caracter;
+        finesTramo[tramos] = caracter + decodificado.length();
+        finesByte[tramos] = finByte;
+        desdeValor[tramos] = usados;
+        tramos++;
+        return caracter + decodificado.length();
+    }
+
+    private int valoresUsados() {
+        return tramos == 0 ? 0 : desdeValor[tramos - 1] + finesTramo[tramos - 1] - iniciosTramo[tramos - 1];
+    }
+
+    /**
+     * Lee un archivo como texto UTF-8 a un String, o lo mapea si tiene UMBRAL
+     * bytes o más. Ambos dan los mismos caracteres.
+     */
+    public static CharSequence leer(Path archivo) throws IOException {
+        if (Files.size(archivo) >= UMBRAL) {
+            return new TextoMapeado(archivo);
+        }
+        return new String(Files.readAllBytes(archivo), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int length() {
+        return longitud;
+    }
+
+    @Override
+    public char charAt(int indice) {
+        if (tramos == 0) {
+            return (char) bloques[indice >>> BITS_BLOQUE].get(indice & MASCARA_BLOQUE);
+        }
+
+        Ventana actual = ventana;
+        if (indice < actual.inicio || indice >= actual.fin) {
+            actual = ventanaDe(indice);
+            ventana = actual;
+        }
+        if (actual.bytes != null) {
+            return (char) actual.bytes.get(indice + actual.desplazamiento);
+        }
+        return actual.caracteres[indice + actual.desplazamiento];
+    }
+
+    /**
+     * Rango que contiene un carácter: el tramo no ASCII que lo incluye o el
+     * texto ASCII entre dos tramos, cortado en los límites de bloque
+     */
+    private Ventana ventanaDe(int indice) {
+        if (indice < 0 || indice >= longitud) {
+            throw new IndexOutOfBoundsException("Índice fuera del texto: " + indice);
+        }
+
+        // Último tramo que empieza en el carácter o antes
+        int tramo = Arrays.binarySearch(iniciosTramo, 0, tramos, indice);
+        if (tramo < 0) {
+            tramo = -tramo - 2;
+        }
+        if (tramo >= 0 && indice < finesTramo[tramo]) {
+            return new Ventana(iniciosTramo[tramo], finesTramo[tramo], desdeValor[tramo] - iniciosTramo[tramo],
+                    null, valores);
+        }
+
+        int inicio = tramo < 0 ? 0 : finesTramo[tramo];
+        int fin = tramo + 1 < tramos ? iniciosTramo[tramo + 1] : longitud;
+        int desplazamiento = tramo < 0 ? 0 : finesByte[tramo] - finesTramo[tramo];
+
+        // Dentro del bloque que contiene el carácter
+        int bloque = (indice + desplazamiento) >>> BITS_BLOQUE;
+        int base = bloque << BITS_BLOQUE;
+        inicio = Math.max(inicio, base - desplazamiento);
+        fin = (int) Math.min(fin, (long) base + bloques[bloque].limit() - desplazamiento);
+        return new Ventana(inicio, fin, desplazamiento - base, bloques[bloque], null);
+    }
+
+    @Override
+    public CharSequence subSequence(int inicio, int fin) {
+        char[] caracteres = new char[fin - inicio];
+        copiar(inicio, caracteres, 0, caracteres.length);
+        return new String(caracteres);
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, longitud).toString();
+    }
+
+    /**
+     * Copia un rango de caracteres a un arreglo
+     */
+    public void copiar(int inicio, char[] destino, int desde, int cantidad) {
+        for (int i = 0; i < cantidad; i++) {
+            destino[desde + i] = charAt(inicio + i);
+        }
+    }
+
+    /**
+     * Cantidad de líneas del texto (una más que los saltos de línea)
+     */
+    public int getLineas() {
+        indexarLineas();
+        return lineas;
+    }
+
+    /**
+     * Posición donde empieza una línea, contando desde 0
+     */
+    public int inicioLinea(int linea) {
+        indexarLineas();
+        return iniciosLinea[linea];
+    }
+
+    /**
+     * Línea que contiene una posición, contando desde 0
+     */
+    public int lineaDe(int posicion) {
+        indexarLineas();
+        int indice = Arrays.binarySearch(iniciosLinea, 0, lineas, posicion);
+        return indice >= 0 ? indice : -indice - 2;
+    }
+
+    /**
+     * Recorre el texto una sola vez para ubicar los saltos de línea
+     */
+    private synchronized void indexarLineas() {
+        if (iniciosLinea != null) {
+            return;
+        }
+
+        int[] inicios = new int[Math.max(16, longitud / 32)];
+        int cantidad = 1;
+        for (int i = 0; i < longitud; i++) {
+            if (charAt(i) == '\n') {
+                if (cantidad == inicios.length) {
+                    inicios = Arrays.copyOf(inicios, cantidad + (cantidad >> 1));
+                }
+                inicios[cantidad++] = i + 1;
+            }
+        }
+
+        lineas = cantidad;
+        iniciosLinea = inicios;
+    }
+}
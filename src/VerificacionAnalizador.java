@@ -0,0 +1,114 @@
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Prueba de consistencia entre las formas de analizar código Java. Todas las
+ * entradas del analizador (lista, pool, filtro, receptor, región e instancia
+ * reutilizable) deben dar los mismos tokens con los mismos lexemas, también
+ * cuando el código termina dentro de un comentario, un literal o un operador
+ * sin completar.
+ *
+ * Uso: java VerificacionAnalizador (termina con código 1 si hay diferencias)
+ */
+public class VerificacionAnalizador {
+
+    /**
+     * Códigos que terminan en cada estado posible del analizador
+     */
+    private static final String[] CASOS = {
+            "",
+            "x",
+            "/* sin cerrar",
+            "/* sin cerrar\n",
+            "/*",
+            "/",
+            "// comentario",
+            "\"abc",
+            "\"abc\\",
+            "'a",
+            "\"\"\"\n texto sin cerrar",
+            "int x = 0x",
+            "double d = 1e",
+            "a >>",
+            "a >>>=",
+            "m(String.",
+            "m(String..",
+            "x\\u00",
+            "\\u0061",
+            "int \\u0061b = ab;",
+            "\\u002f* sin cerrar",
+            "int a = 1; /* fin */",
+            "@",
+    };
+
+    public static void main(String[] args) {
+        AnalizadorJava analizador = new AnalizadorJava();
+        int fallas = 0;
+        for (String caso : CASOS) {
+            String flujo = describir(enFlujo(caso));
+            String[][] otras = {
+                    { "lista", describir(AnalizadorJava.analizar(caso)) },
+                    { "pool", describir(AnalizadorJava.analizar(caso, new PoolSimbolos(16))) },
+                    { "filtro", describir(AnalizadorJava.analizar(caso, EnumSet.allOf(AnalizadorJava.TipoToken.class),
+                            EnumSet.allOf(AnalizadorJava.Campo.class))) },
+                    { "region", describir(enRegion(caso)) },
+                    { "reset", describir(reutilizando(analizador, caso)) },
+            };
+
+            for (String[] otra : otras) {
+                if (!otra[1].equals(flujo)) {
+                    fallas++;
+                    System.out.println("DIFERENCIA en " + escapar(caso) + "\n  flujo: " + flujo + "\n  " + otra[0]
+                            + ": " + otra[1]);
+                }
+            }
+        }
+
+        if (fallas > 0) {
+            System.out.println(fallas + " diferencias en " + CASOS.length + " casos");
+            System.exit(1);
+        }
+        System.out.println(CASOS.length + " casos OK");
+    }
+
+    private static List<AnalizadorJava.Token> enFlujo(String codigo) {
+        final List<AnalizadorJava.Token> tokens = new ArrayList<>();
+        AnalizadorJava.analizar(codigo, (tipo, fuente, inicio, fin, linea, columna) -> tokens.add(
+                new AnalizadorJava.Token(tipo, AnalizadorJava.lexema(tipo, fuente, inicio, fin), linea, columna)));
+        return tokens;
+    }
+
+    private static List<AnalizadorJava.Token> enRegion(String codigo) {
+        final List<AnalizadorJava.Token> tokens = new ArrayList<>();
+        AnalizadorJava.analizar(codigo, 0, codigo.length(), 1, 1, (tipo, fuente, inicio, fin, linea, columna) -> tokens
+                .add(new AnalizadorJava.Token(tipo, AnalizadorJava.lexema(tipo, fuente, inicio, fin), linea, columna)));
+        return tokens;
+    }
+
+    private static List<AnalizadorJava.Token> reutilizando(AnalizadorJava analizador, String codigo) {
+        List<AnalizadorJava.Token> tokens = new ArrayList<>();
+        int cantidad = analizador.reset(codigo);
+        for (int i = 0; i < cantidad; i++) {
+            tokens.add(new AnalizadorJava.Token(analizador.tipo(i), analizador.lexema(i), analizador.linea(i),
+                    analizador.columna(i)));
+        }
+        return tokens;
+    }
+
+    /**
+     * Tipo, lexema, línea y columna de cada token
+     */
+    private static String describir(List<AnalizadorJava.Token> tokens) {
+        StringBuilder texto = new StringBuilder();
+        for (AnalizadorJava.Token token : tokens) {
+            texto.append(token.getTipo()).append(escapar(token.getLexema())).append('@').append(token.getLinea())
+                    .append(':').append(token.getColumna()).append(' ');
+        }
+        return texto.toString().trim();
+    }
+
+    private static String escapar(String texto) {
+        return "\"" + texto.replace("\\", "\\\\").replace("\n", "\\n") + "\"";
+    }
+}